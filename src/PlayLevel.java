@@ -19,6 +19,10 @@ public class PlayLevel {
                 " Falls: " + result.getKillsByFall() + ")");
         System.out.println("Bricks: " + result.getNumDestroyedBricks() + " Jumps: " + result.getNumJumps() +
                 " Max X Jump: " + result.getMaxXJump() + " Max Air Time: " + result.getMaxJumpAirTime());
+        if (result.getFrameJitter().getCount() > 0) {
+            System.out.println("Frame Jitter: " + result.getFrameJitter() + " Missed Frames: " + result.getNumMissedFrames() +
+                    " Skipped Frames: " + result.getNumSkippedFrames());
+        }
         System.out.println("****************************************************************");
     }
 
@@ -0,0 +1,28 @@
+import java.io.IOException;
+
+import engine.core.MarioBatch;
+import engine.core.MarioResultReader;
+import engine.core.MarioResultWriter;
+
+public class RunBatch {
+    public static void main(String[] args) throws IOException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        MarioBatch batch = new MarioBatch(threads);
+        batch.addAgent("robinBaumgarten", agents.robinBaumgarten.Agent::new);
+        batch.addAgent("sergeyKarakovskiy", agents.sergeyKarakovskiy.Agent::new);
+        batch.addLevelFolder("./levels/original/");
+        if (args.length > 1) {
+            //stream the results to a folder instead of keeping them in memory
+            try (MarioResultWriter writer = new MarioResultWriter(args[1])) {
+                batch.run(20, 0, writer);
+            }
+            System.out.println(batch.getReport());
+            MarioResultReader reader = new MarioResultReader(args[1]);
+            System.out.println("Saved results: " + reader.getNumberOfRows() +
+                    " Avg Completion: " + reader.meanBy("agent", "completion"));
+        } else {
+            batch.run(20, 0);
+            System.out.println(batch.getReport());
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 
 import engine.core.MarioForwardModel;
 import engine.helper.GameStatus;
+import engine.helper.MarioActions;
 
 public class SearchNode {
     public int timeElapsed = 0;
@@ -32,8 +33,8 @@ public class SearchNode {
 
     public float estimateRemainingTimeChild(boolean[] action, int repetitions) {
         float[] childbehaviorDistanceAndSpeed = Helper.estimateMaximumForwardMovement(
-                this.sceneSnapshot.getMarioFloatVelocity()[0], action, repetitions);
-        return calcRemainingTime(this.sceneSnapshot.getMarioFloatPos()[0] + childbehaviorDistanceAndSpeed[0],
+                this.sceneSnapshot.getMarioXA(), action, repetitions);
+        return calcRemainingTime(this.sceneSnapshot.getMarioX() + childbehaviorDistanceAndSpeed[0],
                 childbehaviorDistanceAndSpeed[1]);
     }
 
@@ -54,18 +55,16 @@ public class SearchNode {
     public void initializeRoot(MarioForwardModel model) {
         if (this.parentPos == null) {
             this.sceneSnapshot = model.clone();
-            this.remainingTimeEstimated = calcRemainingTime(model.getMarioFloatPos()[0], 0);
+            this.remainingTimeEstimated = calcRemainingTime(model.getMarioX(), 0);
         }
     }
 
     public float simulatePos() {
         this.sceneSnapshot = parentPos.sceneSnapshot.clone();
-        for (int i = 0; i < repetitions; i++) {
-            this.sceneSnapshot.advance(action);
-        }
+        this.sceneSnapshot.advance(MarioActions.getMask(action), repetitions);
         int marioDamage = Helper.getMarioDamage(this.sceneSnapshot, this.parentPos.sceneSnapshot);
         remainingTime =
-                calcRemainingTime(this.sceneSnapshot.getMarioFloatPos()[0], this.sceneSnapshot.getMarioFloatVelocity()[0]) +
+                calcRemainingTime(this.sceneSnapshot.getMarioX(), this.sceneSnapshot.getMarioXA()) +
                         marioDamage * (1000000 - 100 * distanceFromOrigin);
         if (isInVisitedList)
             remainingTime += Helper.visitedListPenalty;
@@ -29,6 +29,7 @@ public class Agent implements MarioAgent {
     private int jumpCount = 0, jumpSize = -1;
     private float prevY = 0;
     private boolean[] action;
+    private float[] enemyPos = new float[30];
 
     @Override
     public void initialize(MarioForwardModel model, MarioTimer timer) {
@@ -55,9 +56,14 @@ public class Agent implements MarioAgent {
     }
 
     private boolean enemyInRange(MarioForwardModel e, Rectangle r) {
-        for (int i = 0; i < e.getEnemiesFloatPos().length; i += 3) {
-            if (r.contains(e.getEnemiesFloatPos()[i + 1] - e.getMarioFloatPos()[0],
-                    e.getMarioFloatPos()[1] - e.getEnemiesFloatPos()[i + 2])) {
+        int enemies = e.getEnemiesFloatPos(enemyPos);
+        if (3 * enemies > enemyPos.length) {
+            enemyPos = new float[6 * enemies];
+            e.getEnemiesFloatPos(enemyPos);
+        }
+        for (int i = 0; i < 3 * enemies; i += 3) {
+            if (r.contains(enemyPos[i + 1] - e.getMarioX(),
+                    e.getMarioY() - enemyPos[i + 2])) {
                 return true;
             }
         }
@@ -72,7 +78,7 @@ public class Agent implements MarioAgent {
 
     @Override
     public boolean[] getActions(MarioForwardModel model, MarioTimer timer) {
-        final float marioSpeed = model.getMarioFloatVelocity()[0];
+        final float marioSpeed = model.getMarioXA();
         final boolean dangerOfEnemy = enemyInRange(model, new Rectangle(-13, -57, 105, 87));
         final boolean dangerOfEnemyAbove = enemyInRange(model, new Rectangle(-28, 28, 58, 45));
         final boolean dangerOfGap = dangerOfGap(model.getMarioScreenTilePos()[0], model.getMarioScreenTilePos()[1],
@@ -92,12 +98,12 @@ public class Agent implements MarioAgent {
         } else {
             jumpCount++;
         }
-        final boolean isFalling = prevY < model.getMarioFloatPos()[1] && jumpType.equals(JumpType.NONE);
+        final boolean isFalling = prevY < model.getMarioY() && jumpType.equals(JumpType.NONE);
         action[MarioActions.LEFT.getValue()] = isFalling && ((dangerOfEnemy && dangerOfEnemyAbove) || dangerOfGap);
         action[MarioActions.RIGHT.getValue()] = !isFalling && !(dangerOfEnemyAbove && jumpType == JumpType.WALL);
         action[MarioActions.JUMP.getValue()] = !jumpType.equals(JumpType.NONE) && jumpCount < jumpSize;
         action[MarioActions.SPEED.getValue()] = !(jumpType.equals(JumpType.ENEMY) && action[MarioActions.SPEED.getValue()] && model.getMarioMode() == 2);
-        prevY = model.getMarioFloatPos()[1];
+        prevY = model.getMarioY();
         return action;
     }
 
@@ -0,0 +1,145 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.function.Supplier;
+
+import engine.core.MarioAgent;
+import engine.core.MarioAgentEvent;
+import engine.core.MarioForwardModel;
+import engine.core.MarioGame;
+import engine.core.MarioLatencyHistogram;
+import engine.core.MarioResult;
+import engine.core.MarioTimer;
+import engine.core.MarioWorld;
+import engine.helper.GameStatus;
+import engine.helper.MarioActions;
+
+/**
+ * Compares the cost of the getActions call of the bundled agents. A trajectory (the actions played on a level)
+ * is replayed and every agent is asked for its actions on the same recorded states with the same time budget.
+ * The trajectory is a text file with the initial mario state followed by one action mask per tick, if the file
+ * doesn't exist the robinBaumgarten agent plays the level and the trajectory is saved to that file.
+ * Run it from the project root: java benchmarks.AgentBenchmark [level file] [trajectory file] [stride] [budget msec]
+ */
+public class AgentBenchmark {
+    private static final com.sun.management.ThreadMXBean allocations =
+            ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean ?
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() : null;
+
+    private static long getAllocatedBytes() {
+        if (allocations == null || !allocations.isThreadAllocatedMemorySupported()) {
+            return 0;
+        }
+        return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static int[] recordTrajectory(String level, int marioState) {
+        MarioResult result = new MarioGame().runGame(new agents.robinBaumgarten.Agent(), level, 20, marioState);
+        ArrayList<MarioAgentEvent> events = result.getAgentEvents();
+        int[] trajectory = new int[events.size() + 1];
+        trajectory[0] = marioState;
+        for (int i = 0; i < events.size(); i++) {
+            trajectory[i + 1] = MarioActions.getMask(events.get(i).getActions());
+        }
+        return trajectory;
+    }
+
+    private static int[] loadTrajectory(String filepath) throws IOException {
+        String[] values = new String(Files.readAllBytes(Paths.get(filepath))).trim().split("\\s+");
+        int[] trajectory = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            trajectory[i] = Integer.parseInt(values[i]);
+        }
+        return trajectory;
+    }
+
+    private static void saveTrajectory(String filepath, int[] trajectory) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int value : trajectory) {
+            content.append(value).append('\n');
+        }
+        Files.write(Paths.get(filepath), content.toString().getBytes());
+    }
+
+    /**
+     * Replay the trajectory and keep a copy of every stride-th state
+     */
+    private static ArrayList<MarioForwardModel> getStates(String level, int[] trajectory, int stride) {
+        MarioWorld world = new MarioWorld(null);
+        world.initializeLevel(level, 1000 * 20);
+        world.mario.isLarge = trajectory[0] > 0;
+        world.mario.isFire = trajectory[0] > 1;
+        world.update(new boolean[MarioActions.numberOfActions()]);
+        MarioForwardModel model = new MarioForwardModel(world);
+        ArrayList<MarioForwardModel> states = new ArrayList<>();
+        for (int i = 1; i < trajectory.length && model.getGameStatus() == GameStatus.RUNNING; i++) {
+            if ((i - 1) % stride == 0) {
+                states.add(model.clone());
+            }
+            model.advance(trajectory[i], 1);
+        }
+        return states;
+    }
+
+    private static void measure(String name, Supplier<MarioAgent> factory, ArrayList<MarioForwardModel> states, long budget) {
+        MarioAgent agent = factory.get();
+        agent.initialize(states.get(0).clone(), new MarioTimer(MarioGame.maxTime));
+        MarioLatencyHistogram latency = new MarioLatencyHistogram();
+        long clones = 0;
+        long bytes = 0;
+        int overruns = 0;
+        for (MarioForwardModel state : states) {
+            MarioForwardModel model = state.clone();
+            model.startCloneCounter();
+            MarioTimer timer = new MarioTimer(budget);
+            long startBytes = getAllocatedBytes();
+            agent.getActions(model, timer);
+            long time = timer.getElapsedNanos();
+            bytes += getAllocatedBytes() - startBytes;
+            clones += model.getCloneCount();
+            latency.record(time);
+            if (time > (budget + MarioGame.graceTime) * 1000000L) {
+                overruns += 1;
+            }
+        }
+        System.out.println(String.format("%-18s %s  Overruns: %d  Clones/decision: %.1f  Allocated/decision: %s",
+                name, latency, overruns, (double) clones / states.size(),
+                allocations == null ? "n/a" : String.format("%.1f KB", bytes / 1024.0 / states.size())));
+    }
+
+    public static void main(String[] args) throws IOException {
+        String levelPath = args.length > 0 ? args[0] : "./levels/original/lvl-1.txt";
+        String trajectoryPath = args.length > 1 ? args[1] : null;
+        int stride = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        long budget = args.length > 3 ? Long.parseLong(args[3]) : MarioGame.maxTime;
+        if (allocations != null && allocations.isThreadAllocatedMemorySupported()) {
+            allocations.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        String level = new String(Files.readAllBytes(Paths.get(levelPath)));
+        int[] trajectory;
+        if (trajectoryPath != null && Files.exists(Paths.get(trajectoryPath))) {
+            trajectory = loadTrajectory(trajectoryPath);
+        } else {
+            trajectory = recordTrajectory(level, 0);
+            if (trajectoryPath != null) {
+                saveTrajectory(trajectoryPath, trajectory);
+            }
+        }
+        ArrayList<MarioForwardModel> states = getStates(level, trajectory, stride);
+        System.out.println("Decisions per agent: " + states.size() + " Budget: " + budget + " msec");
+
+        measure("robinBaumgarten", agents.robinBaumgarten.Agent::new, states, budget);
+        measure("andySloane", agents.andySloane.Agent::new, states, budget);
+        measure("spencerSchumann", agents.spencerSchumann.Agent::new, states, budget);
+        measure("sergeyPolikarpov", agents.sergeyPolikarpov.Agent::new, states, budget);
+        measure("glennHartmann", agents.glennHartmann.Agent::new, states, budget);
+        measure("michal", agents.michal.Agent::new, states, budget);
+        measure("trondEllingsen", agents.trondEllingsen.Agent::new, states, budget);
+        measure("sergeyKarakovskiy", agents.sergeyKarakovskiy.Agent::new, states, budget);
+    }
+}
@@ -0,0 +1,243 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import engine.core.MarioEvent;
+import engine.core.MarioForwardModel;
+import engine.core.MarioGame;
+import engine.core.MarioWorld;
+import engine.helper.EventType;
+import engine.helper.GameStatus;
+import engine.helper.MarioActions;
+import engine.helper.SpriteType;
+
+/**
+ * Measures the speed and the allocation rate of the forward model methods that agents call the most
+ * (clone, advance and the observation grids) on a small set of representative game states.
+ * Run it from the project root: java benchmarks.ForwardModelBenchmark [iteration msec] [warmup iterations] [iterations]
+ */
+public class ForwardModelBenchmark {
+    private interface Operation {
+        /**
+         * run the operation a few times
+         *
+         * @return the number of operations done
+         */
+        int run();
+    }
+
+    private static final com.sun.management.ThreadMXBean allocations = getAllocationBean();
+    //keeps the results alive so the JIT can't remove the benchmarked code
+    private static long blackHole = 0;
+
+    private static com.sun.management.ThreadMXBean getAllocationBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    private static long getAllocatedBytes() {
+        if (allocations == null) {
+            return 0;
+        }
+        return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static String getLevel(String filepath) throws IOException {
+        return new String(Files.readAllBytes(Paths.get(filepath)));
+    }
+
+    private static MarioForwardModel createModel(String level) {
+        MarioWorld world = new MarioWorld(null);
+        world.initializeLevel(level, 1000 * 200);
+        world.update(new boolean[MarioActions.numberOfActions()]);
+        return new MarioForwardModel(world);
+    }
+
+    private static boolean[] getRandomActions(Random random) {
+        boolean[] actions = new boolean[MarioActions.numberOfActions()];
+        actions[MarioActions.RIGHT.getValue()] = random.nextInt(10) < 8;
+        actions[MarioActions.LEFT.getValue()] = !actions[MarioActions.RIGHT.getValue()] && random.nextBoolean();
+        actions[MarioActions.SPEED.getValue()] = random.nextInt(3) > 0;
+        actions[MarioActions.JUMP.getValue()] = random.nextInt(3) == 0;
+        return actions;
+    }
+
+    /**
+     * Play random games on a set of levels and pick the states for the benchmark
+     *
+     * @return early level, enemy-dense, mid-air and shell chaos states in that order
+     */
+    private static MarioForwardModel[] findStates(List<String> levels) throws IOException {
+        MarioForwardModel early = createModel(getLevel("./levels/original/lvl-1.txt"));
+        MarioForwardModel enemyDense = null;
+        MarioForwardModel midAir = null;
+        MarioForwardModel shellChaos = null;
+        int maxEnemies = -1;
+        int maxShellEnemies = -1;
+        Random random = new Random(42);
+        for (int i = 0; i < 3 * levels.size(); i++) {
+            String level = levels.get(i % levels.size());
+            MarioWorld world = new MarioWorld(null);
+            world.initializeLevel(level, 1000 * 200);
+            world.update(new boolean[MarioActions.numberOfActions()]);
+            MarioForwardModel model = new MarioForwardModel(world);
+            int lastShell = -100;
+            for (int tick = 0; tick < 600 && model.getGameStatus() == GameStatus.RUNNING; tick++) {
+                model.advance(getRandomActions(random));
+                for (MarioEvent event : world.lastFrameEvents) {
+                    //a stomped koopa leaves a shell behind
+                    if (event.getEventType() == EventType.KICK.getValue() || (event.getEventType() == EventType.STOMP_KILL.getValue() &&
+                            (event.getEventParam() == SpriteType.GREEN_KOOPA.getValue() || event.getEventParam() == SpriteType.RED_KOOPA.getValue()))) {
+                        lastShell = tick;
+                    }
+                }
+                int enemies = model.getNumberOfEnemies();
+                if (enemies > maxEnemies) {
+                    maxEnemies = enemies;
+                    enemyDense = model.clone();
+                }
+                if (tick - lastShell < 10 && enemies > maxShellEnemies) {
+                    maxShellEnemies = enemies;
+                    shellChaos = model.clone();
+                }
+                if (midAir == null && tick > 20 && !model.isMarioOnGround() && model.getMarioYA() < 0) {
+                    midAir = model.clone();
+                }
+            }
+        }
+        if (midAir == null) {
+            System.out.println("No jumps found, using the early state for mid-air.");
+            midAir = early;
+        }
+        if (shellChaos == null) {
+            System.out.println("No shells found, using the enemy-dense state for shell chaos.");
+            shellChaos = enemyDense;
+        }
+        return new MarioForwardModel[]{early, enemyDense, midAir, shellChaos};
+    }
+
+    private static void measure(String name, Operation operation, long iterationTime, int warmups, int iterations) {
+        for (int i = 0; i < warmups; i++) {
+            long end = System.nanoTime() + iterationTime * 1000000L;
+            while (System.nanoTime() < end) {
+                operation.run();
+            }
+        }
+        double[] rates = new double[iterations];
+        long totalOps = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            long ops = 0;
+            long startBytes = getAllocatedBytes();
+            long start = System.nanoTime();
+            long end = start + iterationTime * 1000000L;
+            long now = start;
+            while (now < end) {
+                ops += operation.run();
+                now = System.nanoTime();
+            }
+            totalBytes += getAllocatedBytes() - startBytes;
+            totalOps += ops;
+            rates[i] = ops / ((now - start) / 1e9);
+        }
+        double mean = 0;
+        for (double rate : rates) {
+            mean += rate / iterations;
+        }
+        double variance = 0;
+        for (double rate : rates) {
+            variance += (rate - mean) * (rate - mean) / Math.max(1, iterations - 1);
+        }
+        String allocation = allocations == null ? "n/a" : String.format("%.1f B/op", (double) totalBytes / totalOps);
+        double seconds = iterations * iterationTime / 1000.0;
+        String allocationRate = allocations == null ? "n/a" : String.format("%.1f MB/s", totalBytes / seconds / 1e6);
+        System.out.println(String.format("%-40s %14.1f ops/s  +- %10.1f  %14s  %12s",
+                name, mean, Math.sqrt(variance), allocation, allocationRate));
+    }
+
+    public static void main(String[] args) throws IOException {
+        long iterationTime = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int warmups = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        List<String> levels = new ArrayList<>();
+        for (String folder : new String[]{"./levels/original/", "./levels/notch/", "./levels/ge/"}) {
+            List<Path> files;
+            try (Stream<Path> stream = Files.list(Paths.get(folder))) {
+                files = stream.sorted().limit(15).collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                levels.add(getLevel(file.toString()));
+            }
+        }
+        String[] stateNames = new String[]{"early", "enemy-dense", "mid-air", "shell-chaos"};
+        MarioForwardModel[] states = findStates(levels);
+
+        boolean[][] actionSequence = new boolean[64][];
+        Random random = new Random(7);
+        for (int i = 0; i < actionSequence.length; i++) {
+            actionSequence[i] = getRandomActions(random);
+        }
+        int[] buffer = new int[MarioGame.tileWidth * MarioGame.tileHeight];
+
+        System.out.println(String.format("%-40s %14s  %14s  %14s  %12s", "Benchmark", "Throughput", "Error", "Allocation", "Alloc Rate"));
+        for (int s = 0; s < states.length; s++) {
+            MarioForwardModel state = states[s];
+            measure("clone/" + stateNames[s], () -> {
+                blackHole += state.clone().getMarioFloatPos().length;
+                return 1;
+            }, iterationTime, warmups, iterations);
+            measure("advance/" + stateNames[s], new Operation() {
+                private MarioForwardModel model = state.clone();
+                private int start = this.model.mark();
+                private int tick = 0;
+                private int ticks = 0;
+
+                @Override
+                public int run() {
+                    //back to the selected state every 32 ticks, rewinding doesn't allocate so the allocation
+                    //is the one of advance (with the changes it records for the rewind) and not of a clone
+                    if (this.ticks == 32 || this.model.getGameStatus() != GameStatus.RUNNING) {
+                        this.model.rewind(this.start);
+                        this.ticks = 0;
+                    }
+                    this.model.advance(actionSequence[this.tick]);
+                    this.tick = (this.tick + 1) % actionSequence.length;
+                    this.ticks += 1;
+                    return 1;
+                }
+            }, iterationTime, warmups, iterations);
+            measure("getMarioCompleteObservation/" + stateNames[s], () -> {
+                blackHole += state.getMarioCompleteObservation(1, 0)[8][8];
+                return 1;
+            }, iterationTime, warmups, iterations);
+            measure("getMarioCompleteObservation[]/" + stateNames[s], () -> {
+                state.getMarioCompleteObservation(1, 0, buffer);
+                blackHole += buffer[8];
+                return 1;
+            }, iterationTime, warmups, iterations);
+            measure("stateHash/" + stateNames[s], () -> {
+                blackHole += state.stateHash();
+                return 1;
+            }, iterationTime, warmups, iterations);
+        }
+        if (blackHole == 42) {
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package engine.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import engine.helper.GameStatus;
+
+/**
+ * Runs every agent on every level without visuals using a pool of threads. Each game gets its own
+ * MarioGame and a new agent from the agent factory so games never share any state.
+ */
+public class MarioBatch {
+    private int threads;
+    private MarioGameSet games;
+
+    //statistics of the last run for the report, indexed like the agents
+    private ArrayList<AgentStats> reportStats;
+    private int lastGames;
+    private long lastTicks;
+    private long lastElapsedNanos;
+
+    /**
+     * Create a batch that uses one thread for every available processor
+     */
+    public MarioBatch() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a batch that runs games on a certain number of threads
+     *
+     * @param threads the number of games that run at the same time
+     */
+    public MarioBatch(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads has to be positive: " + threads);
+        }
+        this.threads = threads;
+        this.games = new MarioGameSet();
+        this.resetReport();
+    }
+
+    /**
+     * Add an agent to the batch
+     *
+     * @param name    the name used in the results and the report
+     * @param factory creates a new agent for every game
+     */
+    public void addAgent(String name, Supplier<MarioAgent> factory) {
+        this.games.addAgent(name, factory);
+    }
+
+    /**
+     * Add a level to the batch
+     *
+     * @param name  the name used in the results
+     * @param level the level string using the same representation as the level files
+     */
+    public void addLevel(String name, String level) {
+        this.games.addLevel(name, level);
+    }
+
+    /**
+     * Add all the level files in a folder sorted by their name
+     *
+     * @param folder the path of the folder that contains the level files
+     * @throws IOException if the folder or one of the files can't be read
+     */
+    public void addLevelFolder(String folder) throws IOException {
+        this.games.addLevelFolder(folder);
+    }
+
+    public int getNumberOfGames() {
+        return this.games.getNumberOfGames();
+    }
+
+    /**
+     * Run every agent on every level and wait for all the games to finish
+     *
+     * @param timer      number of ticks for every level to be played
+     * @param marioState the initial state that mario appears in. 0 small mario, 1 large mario, and 2 fire mario.
+     * @return the result of every game ordered by level then by agent
+     */
+    public ArrayList<MarioBatchResult> run(int timer, int marioState) {
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        ArrayList<Future<MarioBatchResult>> futures = new ArrayList<>(this.getNumberOfGames());
+        long startTime = System.nanoTime();
+        this.resetReport();
+        try {
+            //level first so all the agents progress at the same rate
+            for (int l = 0; l < this.games.getNumberOfLevels(); l++) {
+                for (int a = 0; a < this.games.getNumberOfAgents(); a++) {
+                    int agent = a;
+                    int level = l;
+                    futures.add(pool.submit(() -> this.games.playGame(new MarioGame(), agent, level, timer, marioState)));
+                }
+            }
+            ArrayList<MarioBatchResult> results = new ArrayList<>(futures.size());
+            for (Future<MarioBatchResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw rethrow(e);
+                }
+                this.addToReport(results.get(results.size() - 1));
+            }
+            this.lastElapsedNanos = System.nanoTime() - startTime;
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch was interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Run every agent on every level and write every result as soon as its game finishes. Only the games that
+     * are running or waiting to be written are kept in memory, so the batch can have any number of games.
+     *
+     * @param timer      number of ticks for every level to be played
+     * @param marioState the initial state that mario appears in. 0 small mario, 1 large mario, and 2 fire mario.
+     * @param writer     receives the results in the order the games finish
+     * @throws IOException if the writer fails
+     */
+    public void run(int timer, int marioState, MarioResultWriter writer) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        CompletionService<MarioBatchResult> finishedGames = new ExecutorCompletionService<>(pool);
+        int numberOfGames = this.getNumberOfGames();
+        int maxPending = 2 * this.threads;
+        int submitted = 0;
+        long startTime = System.nanoTime();
+        this.resetReport();
+        try {
+            for (int finished = 0; finished < numberOfGames; finished++) {
+                //level first so all the agents progress at the same rate
+                for (; submitted < numberOfGames && submitted - finished < maxPending; submitted++) {
+                    int level = submitted / this.games.getNumberOfAgents();
+                    int agent = submitted % this.games.getNumberOfAgents();
+                    finishedGames.submit(() -> this.games.playGame(new MarioGame(), agent, level, timer, marioState));
+                }
+                MarioBatchResult result;
+                try {
+                    result = finishedGames.take().get();
+                } catch (ExecutionException e) {
+                    throw rethrow(e);
+                }
+                writer.write(result);
+                this.addToReport(result);
+            }
+            this.lastElapsedNanos = System.nanoTime() - startTime;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch was interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    //playGame keeps the exceptions of the games, anything else (like an OutOfMemoryError) stops the batch unchanged
+    private static RuntimeException rethrow(ExecutionException e) {
+        if (e.getCause() instanceof Error) {
+            throw (Error) e.getCause();
+        }
+        if (e.getCause() instanceof RuntimeException) {
+            return (RuntimeException) e.getCause();
+        }
+        return new IllegalStateException("Batch game failed", e.getCause());
+    }
+
+    /**
+     * The statistics of one agent in the last run
+     */
+    private static class AgentStats {
+        private int games;
+        private int wins;
+        private int failed;
+        //sums over the games that finished, failed games have no completion and no ticks
+        private double completion;
+        private long ticks;
+        private long nanos;
+        private int overruns;
+        private MarioLatencyHistogram latency = new MarioLatencyHistogram();
+
+        private void add(MarioBatchResult result) {
+            this.games += 1;
+            MarioResultSummary summary = result.getSummary();
+            if (summary == null) {
+                this.failed += 1;
+            } else {
+                if (summary.getGameStatus() == GameStatus.WIN) {
+                    this.wins += 1;
+                }
+                this.completion += summary.getCompletionPercentage();
+                this.overruns += summary.getNumAgentOverruns();
+                this.latency.add(summary.getAgentLatency());
+                this.ticks += summary.getNumberOfTicks();
+                this.nanos += result.getElapsedNanos();
+            }
+        }
+
+        private double getAverageCompletion() {
+            int finished = this.games - this.failed;
+            return finished > 0 ? this.completion / finished : 0;
+        }
+
+        private double getAverageTickMillis() {
+            return this.ticks > 0 ? this.nanos / (double) this.ticks / 1e6 : 0;
+        }
+    }
+
+    private void resetReport() {
+        this.reportStats = new ArrayList<>(this.games.getNumberOfAgents());
+        for (int a = 0; a < this.games.getNumberOfAgents(); a++) {
+            this.reportStats.add(new AgentStats());
+        }
+        this.lastGames = 0;
+        this.lastTicks = 0;
+    }
+
+    private void addToReport(MarioBatchResult result) {
+        this.reportStats.get(result.agentIndex).add(result);
+        this.lastGames += 1;
+        this.lastTicks += result.getNumberOfTicks();
+    }
+
+    /**
+     * Get a summary of the last run with the statistics of every agent and the overall throughput, the average
+     * completion only counts the games that finished
+     *
+     * @return a printable report
+     */
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("****************************************************************\n");
+        for (int a = 0; a < this.reportStats.size(); a++) {
+            AgentStats stats = this.reportStats.get(a);
+            report.append(String.format("%s: Games: %d Wins: %d Failed: %d Avg Completion: %.3f Avg Tick: %.3f msec%n",
+                    this.games.getAgentNames().get(a), stats.games, stats.wins, stats.failed, stats.getAverageCompletion(),
+                    stats.getAverageTickMillis()));
+            report.append(String.format("    Agent Latency: %s Overruns: %d%n", stats.latency, stats.overruns));
+        }
+        double seconds = Math.max(this.lastElapsedNanos, 1) / 1e9;
+        report.append(String.format("Threads: %d Games: %d Time: %.2f sec Games/sec: %.2f Ticks/sec: %.0f%n",
+                this.threads, this.lastGames, seconds, this.lastGames / seconds, this.lastTicks / seconds));
+        report.append("****************************************************************");
+        return report.toString();
+    }
+}
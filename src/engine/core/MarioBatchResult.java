@@ -0,0 +1,53 @@
+package engine.core;
+
+public class MarioBatchResult {
+    private String agentName;
+    private String levelName;
+    private MarioResultSummary summary;
+    private Throwable error;
+    private long elapsedNanos;
+    //index of the agent in the batch that played the game
+    int agentIndex;
+
+    public MarioBatchResult(String agentName, String levelName, MarioResult result, Throwable error, long elapsedNanos) {
+        this.agentName = agentName;
+        this.levelName = levelName;
+        //only the summary is kept so a batch doesn't hold on to the world and the events of every game
+        this.summary = result == null ? null : result.getSummary();
+        this.error = error;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getAgentName() {
+        return this.agentName;
+    }
+
+    public String getLevelName() {
+        return this.levelName;
+    }
+
+    /**
+     * the statistics of the game or null if the game failed
+     */
+    public MarioResultSummary getSummary() {
+        return this.summary;
+    }
+
+    /**
+     * the exception that stopped the game or null if the game finished
+     */
+    public Throwable getError() {
+        return this.error;
+    }
+
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    public int getNumberOfTicks() {
+        if (this.summary == null) {
+            return 0;
+        }
+        return this.summary.getNumberOfTicks();
+    }
+}
@@ -1,13 +1,25 @@
 package engine.core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import engine.helper.EventType;
 import engine.helper.GameStatus;
+import engine.helper.MarioActions;
 import engine.helper.SpriteType;
 
 public class MarioForwardModel {
     private static final int OBS_SCENE_SHIFT = 16;
+    //button arrays for each action mask so batched advances don't allocate, the engine never writes to them
+    private static final boolean[][] MASK_ACTIONS = new boolean[1 << MarioActions.numberOfActions()][];
+
+    static {
+        for (int i = 0; i < MASK_ACTIONS.length; i++) {
+            MASK_ACTIONS[i] = MarioActions.getActions(i);
+        }
+    }
+    //detail arrays used by the single layer flat observations
+    private static final int[][] SINGLE_DETAILS = new int[][]{{0}, {1}, {2}};
 
     // Generic values
     public static final int OBS_NONE = 0;
@@ -64,14 +76,97 @@ public class MarioForwardModel {
     // Enemies Detail 2
     public static final int OBS_ENEMY = 1;
 
+    //observation values of every tile index and sprite type (by ordinal) for each detail level
+    private static final int NUM_DETAILS = 3;
+    private static final int[][] BLOCK_GENERALIZATION = new int[NUM_DETAILS][256];
+    private static final int[][] SPRITE_GENERALIZATION = new int[NUM_DETAILS][SpriteType.values().length];
+    //used for unsupported detail levels
+    private static final int[] BLOCK_UNDEFINED = new int[256];
+    private static final int[] SPRITE_UNDEFINED = new int[SpriteType.values().length];
+
+    static {
+        for (int detail = 0; detail < NUM_DETAILS; detail++) {
+            for (int tile = 0; tile < BLOCK_GENERALIZATION[detail].length; tile++) {
+                BLOCK_GENERALIZATION[detail][tile] = computeBlockValueGeneralization(tile, detail);
+            }
+            for (SpriteType sprite : SpriteType.values()) {
+                SPRITE_GENERALIZATION[detail][sprite.ordinal()] = computeSpriteTypeGeneralization(sprite, detail);
+            }
+        }
+        for (int tile = 0; tile < BLOCK_UNDEFINED.length; tile++) {
+            BLOCK_UNDEFINED[tile] = computeBlockValueGeneralization(tile, -1);
+        }
+        Arrays.fill(SPRITE_UNDEFINED, OBS_UNDEF);
+    }
+
+    /**
+     * Get the observation value table of the tiles for a detail level, used by the observation grids
+     *
+     * @param detail the detail level
+     * @return the table indexed by the tile index, it is shared and must not be changed
+     */
+    static int[] getBlockTable(int detail) {
+        if (detail < 0 || detail >= NUM_DETAILS) {
+            return BLOCK_UNDEFINED;
+        }
+        return BLOCK_GENERALIZATION[detail];
+    }
+
+    /**
+     * Get the observation value table of the sprites for a detail level, used by the observation grids
+     *
+     * @param detail the detail level
+     * @return the table indexed by the sprite type ordinal, it is shared and must not be changed
+     */
+    static int[] getSpriteTable(int detail) {
+        if (detail < 0 || detail >= NUM_DETAILS) {
+            return SPRITE_UNDEFINED;
+        }
+        return SPRITE_GENERALIZATION[detail];
+    }
+
+    /**
+     * Get the observation value of every tile index for a certain detail level, so agents that build their own
+     * observations can map tiles with an array lookup
+     *
+     * @param detail the detail level (0, 1, or 2)
+     * @return a copy of the table, the value of tile index i is at index i
+     */
+    public static int[] getBlockValueGeneralizationTable(int detail) {
+        return getBlockTable(detail).clone();
+    }
+
+    /**
+     * Get the observation value of every sprite type for a certain detail level, so agents that build their own
+     * observations can map sprites with an array lookup
+     *
+     * @param detail the detail level (0, 1, or 2)
+     * @return a copy of the table, the value of a sprite type is at the index of its ordinal
+     */
+    public static int[] getSpriteTypeGeneralizationTable(int detail) {
+        return getSpriteTable(detail).clone();
+    }
+
     public static int getSpriteTypeGeneralization(SpriteType sprite, int detail) {
+        return getSpriteTable(detail)[sprite.ordinal()];
+    }
+
+    public static int getBlockValueGeneralization(int tile, int detail) {
+        int[] table = getBlockTable(detail);
+        if (tile >= 0 && tile < table.length) {
+            return table[tile];
+        }
+        return computeBlockValueGeneralization(tile, detail);
+    }
+
+    private static int computeSpriteTypeGeneralization(SpriteType sprite, int detail) {
         switch (detail) {
             case (0):
                 switch (sprite) {
                     case MARIO:
                         return OBS_NONE;
                     default:
-                        sprite.getValue();
+                        return sprite.getValue();
                 }
             case (1):
                 switch (sprite) {
@@ -114,7 +209,7 @@ public class MarioForwardModel {
         return OBS_UNDEF;
     }
 
-    public static int getBlockValueGeneralization(int tile, int detail) {
+    private static int computeBlockValueGeneralization(int tile, int detail) {
         if (tile == 0) {
             return OBS_NONE;
         }
@@ -215,6 +310,9 @@ public class MarioForwardModel {
     private int mushrooms;
     private int flowers;
     private int breakBlock;
+    private int journalEpoch;
+    //shared by a model and all the models cloned from it, null when clones are not counted
+    private long[] cloneCounter;
 
     /**
      * Create a forward model object
@@ -240,44 +338,179 @@ public class MarioForwardModel {
         model.mushrooms = this.mushrooms;
         model.flowers = this.flowers;
         model.breakBlock = this.breakBlock;
+        model.cloneCounter = this.cloneCounter;
+        if (this.cloneCounter != null) {
+            this.cloneCounter[0] += 1;
+        }
         return model;
     }
 
+    MarioWorld getWorld() {
+        return this.world;
+    }
+
+    /**
+     * Start counting the clones made from this forward model and from all the models cloned from it
+     */
+    public void startCloneCounter() {
+        this.cloneCounter = new long[1];
+    }
+
+    /**
+     * Get the number of clones made since startCloneCounter was called on this model or the model it was cloned from
+     *
+     * @return the number of clones or 0 if the clones are not counted
+     */
+    public long getCloneCount() {
+        if (this.cloneCounter == null) {
+            return 0;
+        }
+        return this.cloneCounter[0];
+    }
+
     /**
      * Advance the forward model using the action array
      *
      * @param actions a list of all the button states
      */
     public void advance(boolean[] actions) {
+        if (this.world.journal != null && this.journalEpoch != this.world.journalEpoch) {
+            this.saveState(this.world.journal);
+            this.journalEpoch = this.world.journalEpoch;
+        }
         this.world.update(actions);
-        for (MarioEvent e : this.world.lastFrameEvents) {
-            if (e.getEventType() == EventType.FIRE_KILL.getValue()) {
+        this.updateStatistics();
+    }
+
+    /**
+     * Advance the forward model multiple ticks while pressing the same buttons, it stops
+     * early if the game is no longer running
+     *
+     * @param actionMask the pressed buttons where each button is represented by MarioActions.getMask()
+     * @param ticks      the number of ticks to advance
+     * @return the number of ticks that were simulated
+     * @throws IllegalArgumentException if the mask has bits outside of the MarioActions buttons
+     */
+    public int advance(int actionMask, int ticks) {
+        if (actionMask < 0 || actionMask >= MASK_ACTIONS.length) {
+            throw new IllegalArgumentException("Unknown action mask: " + actionMask);
+        }
+        boolean[] actions = MASK_ACTIONS[actionMask];
+        int simulated = 0;
+        while (simulated < ticks && this.world.gameStatus == GameStatus.RUNNING) {
+            this.advance(actions);
+            simulated += 1;
+        }
+        return simulated;
+    }
+
+    /**
+     * Advance the forward model using a list of button states (one for each tick), it stops
+     * early if the game is no longer running
+     *
+     * @param plan a list of all the button states for each tick
+     * @return the number of ticks that were simulated
+     */
+    public int advance(boolean[][] plan) {
+        int simulated = 0;
+        while (simulated < plan.length && this.world.gameStatus == GameStatus.RUNNING) {
+            this.advance(plan[simulated]);
+            simulated += 1;
+        }
+        return simulated;
+    }
+
+    private void updateStatistics() {
+        for (int i = 0; i < this.world.frameEventCount; i++) {
+            int type = this.world.frameEventTypes[i];
+            int param = this.world.frameEventParams[i];
+            if (type == EventType.FIRE_KILL.getValue()) {
                 this.fireKill += 1;
             }
-            if (e.getEventType() == EventType.STOMP_KILL.getValue()) {
+            if (type == EventType.STOMP_KILL.getValue()) {
                 this.stompKill += 1;
             }
-            if (e.getEventType() == EventType.FALL_KILL.getValue()) {
+            if (type == EventType.FALL_KILL.getValue()) {
                 this.fallKill += 1;
             }
-            if (e.getEventType() == EventType.SHELL_KILL.getValue()) {
+            if (type == EventType.SHELL_KILL.getValue()) {
                 this.shellKill += 1;
             }
-            if (e.getEventType() == EventType.COLLECT.getValue()) {
-                if (e.getEventParam() == SpriteType.FIRE_FLOWER.getValue()) {
+            if (type == EventType.COLLECT.getValue()) {
+                if (param == SpriteType.FIRE_FLOWER.getValue()) {
                     this.flowers += 1;
                 }
-                if (e.getEventParam() == SpriteType.MUSHROOM.getValue()) {
+                if (param == SpriteType.MUSHROOM.getValue()) {
                     this.mushrooms += 1;
                 }
             }
-            if (e.getEventType() == EventType.BUMP.getValue() && e.getEventParam() == OBS_BRICK
-                    && e.getMarioState() > 0) {
+            if (type == EventType.BUMP.getValue() && param == OBS_BRICK && this.world.frameEventStates[i] > 0) {
                 this.breakBlock += 1;
             }
         }
     }
 
+    /**
+     * Mark the current state of the forward model so it can be restored later using rewind. This is
+     * a cheaper alternative to clone for depth first search as only the changes after the mark are stored.
+     * Marks can be nested, rewinding to a mark invalidates all the marks made after it.
+     *
+     * @return a mark value that can be passed to rewind
+     */
+    public int mark() {
+        return this.world.mark();
+    }
+
+    /**
+     * Restore the forward model to the state it had when the mark was made. The same mark can be
+     * used multiple times as long as no earlier mark has been rewound to.
+     *
+     * @param mark a value returned by mark
+     */
+    public void rewind(int mark) {
+        this.world.rewind(mark);
+    }
+
+    /**
+     * Stop recording changes for rewinding and forget all the marks
+     */
+    public void clearMarks() {
+        this.world.clearMarks();
+    }
+
+    private void saveState(MarioJournal journal) {
+        journal.pushInt(this.fallKill);
+        journal.pushInt(this.stompKill);
+        journal.pushInt(this.fireKill);
+        journal.pushInt(this.shellKill);
+        journal.pushInt(this.mushrooms);
+        journal.pushInt(this.flowers);
+        journal.pushInt(this.breakBlock);
+        journal.pushObject(this);
+    }
+
+    void restoreState(MarioJournal journal) {
+        this.breakBlock = journal.popInt();
+        this.flowers = journal.popInt();
+        this.mushrooms = journal.popInt();
+        this.shellKill = journal.popInt();
+        this.fireKill = journal.popInt();
+        this.stompKill = journal.popInt();
+        this.fallKill = journal.popInt();
+    }
+
+    /**
+     * Get a 64 bit hash of the current simulation state that can be used for transposition tables.
+     * Two forward models of the same level have the same hash if mario, all the sprites in update order, the
+     * changed tiles, the spawn ticks of the sprite templates and the timers are the same. The statistics counters
+     * (kills, collected items) are not included. The cost grows with the number of sprites.
+     *
+     * @return a hash of the current simulation state
+     */
+    public long stateHash() {
+        return this.world.getStateHash();
+    }
+
     /**
      * Get the current state of the running game
      *
@@ -305,6 +538,24 @@ public class MarioForwardModel {
         return new float[]{this.world.level.width, this.world.level.height};
     }
 
+    /**
+     * Get the level width without allocating an array
+     *
+     * @return the level width in pixels
+     */
+    public float getLevelWidth() {
+        return this.world.level.width;
+    }
+
+    /**
+     * Get the level height without allocating an array
+     *
+     * @return the level height in pixels
+     */
+    public float getLevelHeight() {
+        return this.world.level.height;
+    }
+
     /**
      * Get the remaining time before the game timesout
      *
@@ -323,6 +574,24 @@ public class MarioForwardModel {
         return new float[]{this.world.mario.x, this.world.mario.y};
     }
 
+    /**
+     * Get mario x position without allocating an array, same as getMarioFloatPos()[0]
+     *
+     * @return the actual mario x position in the current state
+     */
+    public float getMarioX() {
+        return this.world.mario.x;
+    }
+
+    /**
+     * Get mario y position without allocating an array, same as getMarioFloatPos()[1]
+     *
+     * @return the actual mario y position in the current state
+     */
+    public float getMarioY() {
+        return this.world.mario.y;
+    }
+
     /**
      * Get mario velocity
      *
@@ -332,6 +601,24 @@ public class MarioForwardModel {
         return new float[]{this.world.mario.xa, this.world.mario.ya};
     }
 
+    /**
+     * Get mario horizontal velocity without allocating an array, same as getMarioFloatVelocity()[0]
+     *
+     * @return the actual mario x velocity in the current state
+     */
+    public float getMarioXA() {
+        return this.world.mario.xa;
+    }
+
+    /**
+     * Get mario vertical velocity without allocating an array, same as getMarioFloatVelocity()[1]
+     *
+     * @return the actual mario y velocity in the current state
+     */
+    public float getMarioYA() {
+        return this.world.mario.ya;
+    }
+
     /**
      * If mario can press the jump button while in the air to reach higher areas
      *
@@ -392,6 +679,39 @@ public class MarioForwardModel {
         return enemyPos;
     }
 
+    /**
+     * Get the number of enemy sprites
+     *
+     * @return the number of enemies, same as getEnemiesFloatPos().length / 3
+     */
+    public int getNumberOfEnemies() {
+        return this.world.getSprites().getNumberOfEnemies();
+    }
+
+    /**
+     * Fill a caller array with the type, x position and y position of every enemy sprite, the same values as
+     * getEnemiesFloatPos without allocating a new array
+     *
+     * @param buffer receives 3 floats per enemy, enemies that don't fit in the buffer are not written
+     * @return the number of enemies, the buffer needs at least 3 times that many values to hold all of them
+     */
+    public int getEnemiesFloatPos(float[] buffer) {
+        int enemies = 0;
+        MarioSpriteStore sprites = this.world.getSprites();
+        for (int i = 0; i < sprites.size(); i++) {
+            if ((sprites.getFlags(i) & MarioSpriteStore.ENEMY) != 0) {
+                MarioSprite sprite = sprites.get(i);
+                if (3 * enemies + 2 < buffer.length) {
+                    buffer[3 * enemies] = sprite.type.getValue();
+                    buffer[3 * enemies + 1] = sprite.x;
+                    buffer[3 * enemies + 2] = sprite.y;
+                }
+                enemies += 1;
+            }
+        }
+        return enemies;
+    }
+
     /**
      * get the number of enemies killed in the game
      *
@@ -640,4 +960,134 @@ public class MarioForwardModel {
     public int[][] getMarioSceneObservation(int detail) {
         return this.world.getSceneObservation(this.world.mario.x, this.world.mario.y, detail);
     }
+
+    /**
+     * Check a detail level that is used by the flat observations
+     *
+     * @param detail the detail level
+     * @throws IllegalArgumentException if the detail level is not 0, 1 or 2
+     */
+    static void checkDetail(int detail) {
+        if (detail < 0 || detail >= NUM_DETAILS) {
+            throw new IllegalArgumentException("Unknown observation detail: " + detail);
+        }
+    }
+
+    private static int[] getDetails(int detail) {
+        checkDetail(detail);
+        return SINGLE_DETAILS[detail];
+    }
+
+    /**
+     * Fill a flat buffer with the current screen status around the center of screen. Tile (x, y) is
+     * stored at index y * obsGridWidth + x, the buffer is reused so no new grid is allocated.
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer      an array of at least obsGridWidth * obsGridHeight values
+     */
+    public void getScreenCompleteObservation(int sceneDetail, int enemyDetail, int[] buffer) {
+        this.world.fillMergedObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2,
+                sceneDetail, enemyDetail, buffer, 0);
+    }
+
+    /**
+     * Fill a flat buffer with the current enemies on the screen around the center of screen. Tile (x, y) is
+     * stored at index y * obsGridWidth + x, the buffer is reused so no new grid is allocated.
+     *
+     * @param detail the detail level of the current enemies: 0 all details, 1 less
+     *               detailed, 2 binary detail
+     * @param buffer an array of at least obsGridWidth * obsGridHeight values
+     */
+    public void getScreenEnemiesObservation(int detail, int[] buffer) {
+        this.world.fillEnemiesObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2,
+                getDetails(detail), buffer, 0);
+    }
+
+    /**
+     * Fill a flat buffer with the current objects (not enemies) on the screen around the center of screen.
+     * Tile (x, y) is stored at index y * obsGridWidth + x, the buffer is reused so no new grid is allocated.
+     *
+     * @param detail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *               binary detail
+     * @param buffer an array of at least obsGridWidth * obsGridHeight values
+     */
+    public void getScreenSceneObservation(int detail, int[] buffer) {
+        this.world.fillSceneObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2,
+                getDetails(detail), buffer, 0);
+    }
+
+    /**
+     * Fill a flat buffer with multiple scene and enemies layers around the center of screen in one pass.
+     * The scene layers come first in the order of sceneDetails followed by the enemies layers in the order
+     * of enemyDetails. Each layer has obsGridWidth * obsGridHeight values and tile (x, y) is stored at
+     * index y * obsGridWidth + x of its layer.
+     *
+     * @param sceneDetails the detail level of each scene layer
+     * @param enemyDetails the detail level of each enemies layer
+     * @param buffer       an array of at least (sceneDetails.length + enemyDetails.length) * obsGridWidth * obsGridHeight values
+     */
+    public void getScreenObservationLayers(int[] sceneDetails, int[] enemyDetails, int[] buffer) {
+        float centerX = this.world.cameraX + MarioGame.width / 2;
+        float centerY = MarioGame.height / 2;
+        this.world.fillSceneObservation(centerX, centerY, sceneDetails, buffer, 0);
+        this.world.fillEnemiesObservation(centerX, centerY, enemyDetails, buffer,
+                sceneDetails.length * this.obsGridWidth * this.obsGridHeight);
+    }
+
+    /**
+     * Fill a flat buffer with the current screen status around mario. Tile (x, y) is
+     * stored at index y * obsGridWidth + x, the buffer is reused so no new grid is allocated.
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer      an array of at least obsGridWidth * obsGridHeight values
+     */
+    public void getMarioCompleteObservation(int sceneDetail, int enemyDetail, int[] buffer) {
+        this.world.fillMergedObservation(this.world.mario.x, this.world.mario.y, sceneDetail, enemyDetail, buffer, 0);
+    }
+
+    /**
+     * Fill a flat buffer with the current enemies on the screen around mario. Tile (x, y) is
+     * stored at index y * obsGridWidth + x, the buffer is reused so no new grid is allocated.
+     *
+     * @param detail the detail level of the current enemies: 0 all details, 1 less
+     *               detailed, 2 binary detail
+     * @param buffer an array of at least obsGridWidth * obsGridHeight values
+     */
+    public void getMarioEnemiesObservation(int detail, int[] buffer) {
+        this.world.fillEnemiesObservation(this.world.mario.x, this.world.mario.y, getDetails(detail), buffer, 0);
+    }
+
+    /**
+     * Fill a flat buffer with the current objects (not enemies) on the screen around mario. Tile (x, y) is
+     * stored at index y * obsGridWidth + x, the buffer is reused so no new grid is allocated.
+     *
+     * @param detail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *               binary detail
+     * @param buffer an array of at least obsGridWidth * obsGridHeight values
+     */
+    public void getMarioSceneObservation(int detail, int[] buffer) {
+        this.world.fillSceneObservation(this.world.mario.x, this.world.mario.y, getDetails(detail), buffer, 0);
+    }
+
+    /**
+     * Fill a flat buffer with multiple scene and enemies layers around mario in one pass.
+     * The scene layers come first in the order of sceneDetails followed by the enemies layers in the order
+     * of enemyDetails. Each layer has obsGridWidth * obsGridHeight values and tile (x, y) is stored at
+     * index y * obsGridWidth + x of its layer.
+     *
+     * @param sceneDetails the detail level of each scene layer
+     * @param enemyDetails the detail level of each enemies layer
+     * @param buffer       an array of at least (sceneDetails.length + enemyDetails.length) * obsGridWidth * obsGridHeight values
+     */
+    public void getMarioObservationLayers(int[] sceneDetails, int[] enemyDetails, int[] buffer) {
+        this.world.fillSceneObservation(this.world.mario.x, this.world.mario.y, sceneDetails, buffer, 0);
+        this.world.fillEnemiesObservation(this.world.mario.x, this.world.mario.y, enemyDetails, buffer,
+                sceneDetails.length * this.obsGridWidth * this.obsGridHeight);
+    }
 }
@@ -0,0 +1,157 @@
+package engine.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps the game loop on a fixed tick rate. Ticks are scheduled on a grid of System.nanoTime deadlines,
+ * the pacer parks until shortly before each deadline and spins the rest of the way, and it records how
+ * late every tick started relative to its deadline.
+ */
+public class MarioFramePacer {
+    /**
+     * What the game does after a tick started late
+     */
+    public enum Policy {
+        /**
+         * late ticks run back to back without waiting until the game is back on schedule
+         */
+        CATCH_UP,
+        /**
+         * like CATCH_UP but ticks that are behind schedule are not painted (at most MAX_FRAME_SKIP in a row)
+         */
+        FRAME_SKIP,
+        /**
+         * deadlines that were missed are dropped and the next tick waits for the next deadline on the grid
+         */
+        RESYNC
+    }
+
+    /**
+     * the maximum number of painted frames that can be skipped in a row
+     */
+    public static final int MAX_FRAME_SKIP = 5;
+    //parkNanos can wake up late by the timer resolution of the system, the last part of the wait is a spin
+    private static final long SPIN_NANOS = 1000000L;
+
+    private final long period;
+    private final Policy policy;
+    private long nextFrame;
+    //the latest deadline that was counted as missed, so ticks that catch up don't count it again
+    private long lastMissed;
+    private int skippedInRow;
+
+    private MarioLatencyHistogram jitter;
+    private int missedFrames;
+    private int skippedFrames;
+
+    /**
+     * Create a frame pacer
+     *
+     * @param fps    the number of ticks per second, it has to be positive
+     * @param policy what to do with ticks that start late
+     */
+    public MarioFramePacer(int fps, Policy policy) {
+        if (fps <= 0) {
+            throw new IllegalArgumentException("Frames per second has to be positive: " + fps);
+        }
+        this.period = 1000000000L / fps;
+        this.policy = policy;
+        this.jitter = new MarioLatencyHistogram();
+        this.start();
+    }
+
+    /**
+     * Start the schedule, the first deadline is one period from now
+     */
+    public void start() {
+        this.nextFrame = System.nanoTime() + this.period;
+        this.lastMissed = this.nextFrame;
+        this.skippedInRow = 0;
+    }
+
+    /**
+     * Check if the current tick should be painted, only FRAME_SKIP skips painting
+     *
+     * @return false if the tick is behind schedule and its painting should be skipped
+     */
+    public boolean shouldRender() {
+        if (this.policy != Policy.FRAME_SKIP || System.nanoTime() <= this.nextFrame || this.skippedInRow >= MAX_FRAME_SKIP) {
+            this.skippedInRow = 0;
+            return true;
+        }
+        this.skippedInRow += 1;
+        this.skippedFrames += 1;
+        return false;
+    }
+
+    /**
+     * Wait until the deadline of the next tick
+     *
+     * @return false if the thread was interrupted while waiting
+     */
+    public boolean waitForNextFrame() {
+        long now = System.nanoTime();
+        while (now < this.nextFrame) {
+            long remaining = this.nextFrame - now;
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            now = System.nanoTime();
+        }
+        long late = now - this.nextFrame;
+        this.jitter.record(late);
+        if (late >= this.period) {
+            long missed = this.nextFrame + late / this.period * this.period;
+            if (missed > this.lastMissed) {
+                this.missedFrames += (int) ((missed - Math.max(this.nextFrame, this.lastMissed)) / this.period);
+                this.lastMissed = missed;
+            }
+            if (this.policy == Policy.RESYNC) {
+                this.nextFrame = missed;
+            }
+        }
+        this.nextFrame += this.period;
+        return true;
+    }
+
+    public long getPeriodNanos() {
+        return this.period;
+    }
+
+    public Policy getPolicy() {
+        return this.policy;
+    }
+
+    /**
+     * Get how late every tick started relative to its deadline
+     *
+     * @return histogram of the tick start delays in nanoseconds
+     */
+    public MarioLatencyHistogram getJitter() {
+        return this.jitter;
+    }
+
+    /**
+     * Get the number of deadlines that passed without a tick starting, a deadline is counted once even when
+     * the ticks that catch up after a stall start late as well
+     *
+     * @return the number of missed deadlines
+     */
+    public int getNumMissedFrames() {
+        return this.missedFrames;
+    }
+
+    /**
+     * Get the number of ticks that were not painted because the game was behind schedule
+     *
+     * @return the number of skipped paints
+     */
+    public int getNumSkippedFrames() {
+        return this.skippedFrames;
+    }
+}
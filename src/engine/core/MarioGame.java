@@ -2,6 +2,13 @@ package engine.core;
 
 import java.awt.image.VolatileImage;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.awt.*;
 import java.awt.event.KeyAdapter;
 
@@ -46,17 +53,43 @@ public class MarioGame {
      */
     public boolean pause = false;
 
+    /**
+     * run the agent on its own thread and use the previous actions when it takes more than maxTime + graceTime
+     */
+    public boolean enforceDeadline = false;
+
+    /**
+     * paint the game on its own thread from recorded frames so painting doesn't slow down the simulation or the agent
+     */
+    public boolean asyncRender = false;
+
+    /**
+     * what the game does when a tick starts late while it is running at a fixed number of frames per second
+     */
+    public MarioFramePacer.Policy pacing = MarioFramePacer.Policy.CATCH_UP;
+
     /**
      * events that kills the player when it happens only care about type and param
      */
     private MarioEvent[] killEvents;
 
+    /**
+     * shared permits that every game tick has to hold, used by the tournament to limit how many games are simulated at the same time
+     */
+    Semaphore tickPermits = null;
+
     //visualization
     private JFrame window = null;
     private MarioRender render = null;
     private MarioAgent agent = null;
     private MarioWorld world = null;
 
+    //deadline enforcement
+    private ExecutorService agentThread = null;
+    private Future<boolean[]> pendingActions = null;
+    //the time the pending agent call took, filled by the agent thread when the call returns
+    private long[] pendingNanos = null;
+
     /**
      * Create a mario game to be played
      */
@@ -73,13 +106,6 @@ public class MarioGame {
         this.killEvents = killEvents;
     }
 
-    private int getDelay(int fps) {
-        if (fps <= 0) {
-            return 0;
-        }
-        return 1000 / fps;
-    }
-
     private void setAgent(MarioAgent agent) {
         this.agent = agent;
         if (agent instanceof KeyAdapter) {
@@ -218,6 +244,62 @@ public class MarioGame {
         return this.gameLoop(level, timer, marioState, visuals, fps);
     }
 
+    /**
+     * Ask the agent for its actions, when the deadline is enforced the agent runs on its own thread. The time of
+     * every agent call is recorded once when the call returns, a call that missed its deadline is recorded with
+     * its full time on the first tick after it finished, ticks that skip the agent are not recorded.
+     *
+     * @param latency the histogram that receives the time of the finished agent calls
+     * @return the agent actions or null if the agent missed the deadline
+     */
+    private boolean[] getAgentActions(MarioForwardModel model, MarioTimer timer, MarioLatencyHistogram latency) {
+        if (this.agentThread == null) {
+            boolean[] actions = this.agent.getActions(model, timer);
+            latency.record(timer.getElapsedNanos());
+            return actions;
+        }
+        if (this.pendingActions != null) {
+            if (!this.pendingActions.isDone()) {
+                return null;
+            }
+            //late actions for an older tick are dropped, only their time is kept
+            latency.record(this.pendingNanos[0]);
+            this.pendingActions = null;
+        }
+        //written by the agent thread before the future completes, so it is visible once the future is done
+        long[] callNanos = new long[1];
+        this.pendingNanos = callNanos;
+        this.pendingActions = this.agentThread.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                return this.agent.getActions(model, timer);
+            } finally {
+                callNanos[0] = System.nanoTime() - start;
+            }
+        });
+        long deadline = (MarioGame.maxTime + MarioGame.graceTime) * 1000000L;
+        try {
+            boolean[] actions = this.pendingActions.get(Math.max(0, deadline - timer.getElapsedNanos()), TimeUnit.NANOSECONDS);
+            this.pendingActions = null;
+            latency.record(callNanos[0]);
+            return actions;
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            this.pendingActions = null;
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Agent failed to return actions", e.getCause());
+        }
+    }
+
     private MarioResult gameLoop(String level, int timer, int marioState, boolean visual, int fps) {
         this.world = new MarioWorld(this.killEvents);
         this.world.visuals = visual;
@@ -228,13 +310,17 @@ public class MarioGame {
         this.world.mario.isLarge = marioState > 0;
         this.world.mario.isFire = marioState > 1;
         this.world.update(new boolean[MarioActions.numberOfActions()]);
-        long currentTime = System.currentTimeMillis();
 
         //initialize graphics
         VolatileImage renderTarget = null;
         Graphics backBuffer = null;
         Graphics currentBuffer = null;
-        if (visual) {
+        MarioRenderThread renderThread = null;
+        if (visual && this.asyncRender) {
+            renderThread = new MarioRenderThread(this.render, fps);
+            this.render.addFocusListener(this.render);
+            renderThread.publish(this.world);
+        } else if (visual) {
             renderTarget = this.render.createVolatileImage(MarioGame.width, MarioGame.height);
             backBuffer = this.render.getGraphics();
             currentBuffer = renderTarget.getGraphics();
@@ -244,41 +330,87 @@ public class MarioGame {
         MarioTimer agentTimer = new MarioTimer(MarioGame.maxTime);
         this.agent.initialize(new MarioForwardModel(this.world.clone()), agentTimer);
 
+        if (this.enforceDeadline) {
+            this.agentThread = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Mario Agent");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.pendingActions = null;
+
         ArrayList<MarioEvent> gameEvents = new ArrayList<>();
         ArrayList<MarioAgentEvent> agentEvents = new ArrayList<>();
-        while (this.world.gameStatus == GameStatus.RUNNING) {
-            if (!this.pause) {
-                //get actions
-                agentTimer = new MarioTimer(MarioGame.maxTime);
-                boolean[] actions = this.agent.getActions(new MarioForwardModel(this.world.clone()), agentTimer);
-                if (MarioGame.verbose) {
-                    if (agentTimer.getRemainingTime() < 0 && Math.abs(agentTimer.getRemainingTime()) > MarioGame.graceTime) {
-                        System.out.println("The Agent is slowing down the game by: "
-                                + Math.abs(agentTimer.getRemainingTime()) + " msec.");
+        MarioLatencyHistogram agentLatency = new MarioLatencyHistogram();
+        int agentOverruns = 0;
+        boolean[] lastActions = new boolean[MarioActions.numberOfActions()];
+        MarioFramePacer pacer = fps > 0 ? new MarioFramePacer(fps, this.pacing) : null;
+        try {
+            while (this.world.gameStatus == GameStatus.RUNNING) {
+                if (!this.pause) {
+                    if (this.tickPermits != null) {
+                        this.tickPermits.acquireUninterruptibly();
+                    }
+                    try {
+                        //get actions
+                        agentTimer = new MarioTimer(MarioGame.maxTime);
+                        boolean[] actions = this.getAgentActions(new MarioForwardModel(this.world.clone()), agentTimer, agentLatency);
+                        long agentTime = agentTimer.getElapsedNanos();
+                        if (actions == null || agentTime > (MarioGame.maxTime + MarioGame.graceTime) * 1000000L) {
+                            agentOverruns += 1;
+                            if (MarioGame.verbose) {
+                                System.out.println(actions == null ? "The Agent missed the deadline, repeating the previous actions."
+                                        : "The Agent is slowing down the game by: " + (agentTime / 1000000L - MarioGame.maxTime) + " msec.");
+                            }
+                        }
+                        //agents may reuse their array, the recorded actions must not change afterwards
+                        actions = actions == null ? lastActions : actions.clone();
+                        lastActions = actions;
+                        // update world
+                        this.world.update(actions);
+                        gameEvents.addAll(this.world.lastFrameEvents);
+                        agentEvents.add(new MarioAgentEvent(actions, this.world.mario.x,
+                                this.world.mario.y, (this.world.mario.isLarge ? 1 : 0) + (this.world.mario.isFire ? 1 : 0),
+                                this.world.mario.onGround, this.world.currentTick));
+                    } finally {
+                        if (this.tickPermits != null) {
+                            this.tickPermits.release();
+                        }
                     }
                 }
-                // update world
-                this.world.update(actions);
-                gameEvents.addAll(this.world.lastFrameEvents);
-                agentEvents.add(new MarioAgentEvent(actions, this.world.mario.x,
-                        this.world.mario.y, (this.world.mario.isLarge ? 1 : 0) + (this.world.mario.isFire ? 1 : 0),
-                        this.world.mario.onGround, this.world.currentTick));
-            }
 
-            //render world
-            if (visual) {
-                this.render.renderWorld(this.world, renderTarget, backBuffer, currentBuffer);
-            }
-            //check if delay needed
-            if (this.getDelay(fps) > 0) {
-                try {
-                    currentTime += this.getDelay(fps);
-                    Thread.sleep(Math.max(0, currentTime - System.currentTimeMillis()));
-                } catch (InterruptedException e) {
+                //render world
+                boolean paint = pacer == null || pacer.shouldRender();
+                if (renderThread != null) {
+                    if (!this.pause && paint) {
+                        renderThread.publish(this.world);
+                    }
+                } else if (visual && paint) {
+                    this.render.renderWorld(this.world, renderTarget, backBuffer, currentBuffer);
+                }
+                //wait for the next tick
+                if (pacer != null && !pacer.waitForNextFrame()) {
                     break;
                 }
             }
+        } finally {
+            if (renderThread != null) {
+                renderThread.stop();
+            }
+            if (this.agentThread != null) {
+                //a late call that returned after the last tick still counts, one that is still running can't
+                if (this.pendingActions != null && this.pendingActions.isDone()) {
+                    agentLatency.record(this.pendingNanos[0]);
+                }
+                this.pendingActions = null;
+                this.agentThread.shutdownNow();
+                this.agentThread = null;
+            }
+        }
+        MarioResult result = new MarioResult(this.world, gameEvents, agentEvents, agentLatency, agentOverruns);
+        if (pacer != null) {
+            result.setFramePacing(pacer.getJitter(), pacer.getNumMissedFrames(), pacer.getNumSkippedFrames());
         }
-        return new MarioResult(this.world, gameEvents, agentEvents);
+        return result;
     }
 }
@@ -0,0 +1,111 @@
+package engine.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The agents and levels of a batch or a tournament and the code that plays one of their games, so both run
+ * games and record failed games the same way.
+ */
+class MarioGameSet {
+    private ArrayList<String> agentNames;
+    private ArrayList<Supplier<MarioAgent>> agentFactories;
+    private ArrayList<String> levelNames;
+    private ArrayList<String> levels;
+
+    MarioGameSet() {
+        this.agentNames = new ArrayList<>();
+        this.agentFactories = new ArrayList<>();
+        this.levelNames = new ArrayList<>();
+        this.levels = new ArrayList<>();
+    }
+
+    void addAgent(String name, Supplier<MarioAgent> factory) {
+        this.agentNames.add(name);
+        this.agentFactories.add(factory);
+    }
+
+    void addLevel(String name, String level) {
+        this.levelNames.add(name);
+        this.levels.add(level);
+    }
+
+    /**
+     * Add all the level files in a folder sorted by their name, the file paths are used as the level names
+     *
+     * @param folder the path of the folder that contains the level files
+     * @throws IOException if the folder or one of the files can't be read
+     */
+    void addLevelFolder(String folder) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(Paths.get(folder))) {
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            this.addLevel(file.toString(), new String(Files.readAllBytes(file)));
+        }
+    }
+
+    ArrayList<String> getAgentNames() {
+        return this.agentNames;
+    }
+
+    int getNumberOfAgents() {
+        return this.agentFactories.size();
+    }
+
+    int getNumberOfLevels() {
+        return this.levels.size();
+    }
+
+    int getNumberOfGames() {
+        return this.agentFactories.size() * this.levels.size();
+    }
+
+    /**
+     * Play one game without visuals, exceptions thrown by the agent or the game are kept in the result
+     *
+     * @param game       the game object that runs the game loop
+     * @param agent      the index of the agent
+     * @param level      the index of the level
+     * @param timer      number of ticks for the level to be played
+     * @param marioState the initial state that mario appears in. 0 small mario, 1 large mario, and 2 fire mario.
+     * @return the result of the game, with the error if the game failed
+     */
+    MarioBatchResult playGame(MarioGame game, int agent, int level, int timer, int marioState) {
+        long startTime = System.nanoTime();
+        MarioResult played;
+        try {
+            played = game.runGame(this.agentFactories.get(agent).get(), this.levels.get(level), timer, marioState, false);
+        } catch (RuntimeException | StackOverflowError e) {
+            return this.getFailedGame(agent, level, e, System.nanoTime() - startTime);
+        }
+        MarioBatchResult result = new MarioBatchResult(this.agentNames.get(agent), this.levelNames.get(level),
+                played, null, System.nanoTime() - startTime);
+        result.agentIndex = agent;
+        return result;
+    }
+
+    /**
+     * Create the result of a game that stopped with an error
+     *
+     * @param agent        the index of the agent
+     * @param level        the index of the level
+     * @param error        the error that stopped the game
+     * @param elapsedNanos the time the game ran before it stopped
+     * @return a failed result that keeps the error
+     */
+    MarioBatchResult getFailedGame(int agent, int level, Throwable error, long elapsedNanos) {
+        MarioBatchResult result = new MarioBatchResult(this.agentNames.get(agent), this.levelNames.get(level),
+                null, error, elapsedNanos);
+        result.agentIndex = agent;
+        return result;
+    }
+}
@@ -0,0 +1,153 @@
+package engine.core;
+
+import java.util.Arrays;
+
+/**
+ * Undo journal used by the forward model to go back to a previous state without cloning the world.
+ * Every object that changes after a mark pushes its old values followed by itself, so rewinding pops
+ * the owners one by one and each owner pops its values back in the reverse order they were pushed.
+ */
+public class MarioJournal {
+    private int[] ints;
+    private float[] floats;
+    private Object[] objects;
+    private int intSize, floatSize, objectSize;
+    //hash journals are never rewound so they drop the values that only change the graphics
+    private final boolean hashOnly;
+
+    MarioJournal() {
+        this(false);
+    }
+
+    MarioJournal(boolean hashOnly) {
+        this.hashOnly = hashOnly;
+        this.ints = new int[256];
+        this.floats = new float[256];
+        this.objects = new Object[64];
+    }
+
+    /**
+     * Get a value that represents the current position in the journal
+     *
+     * @return the current journal position
+     */
+    int mark() {
+        return this.objectSize;
+    }
+
+    /**
+     * Restore all the objects that saved their state after a certain position
+     *
+     * @param mark a journal position returned by mark
+     */
+    void rewind(int mark) {
+        if (mark < 0 || mark > this.objectSize) {
+            throw new IllegalArgumentException("Mark " + mark + " is no longer valid for this journal.");
+        }
+        while (this.objectSize > mark) {
+            Object owner = this.popObject();
+            if (owner instanceof MarioSprite) {
+                ((MarioSprite) owner).restoreState(this);
+            } else if (owner instanceof MarioWorld) {
+                ((MarioWorld) owner).restoreState(this);
+            } else if (owner instanceof MarioLevel) {
+                ((MarioLevel) owner).restoreState(this);
+            } else if (owner instanceof MarioForwardModel) {
+                ((MarioForwardModel) owner).restoreState(this);
+            }
+        }
+    }
+
+    /**
+     * Remove everything from the journal
+     */
+    void clear() {
+        Arrays.fill(this.objects, 0, this.objectSize, null);
+        this.intSize = 0;
+        this.floatSize = 0;
+        this.objectSize = 0;
+    }
+
+    /**
+     * Hash all the primitive values currently in the journal, objects are ignored
+     *
+     * @return a 64 bit hash of the pushed ints and floats
+     */
+    long hashValues() {
+        long hash = 0;
+        for (int i = 0; i < this.intSize; i++) {
+            hash = MarioWorld.mixHash(hash + this.ints[i]);
+        }
+        for (int i = 0; i < this.floatSize; i++) {
+            hash = MarioWorld.mixHash(hash + Float.floatToIntBits(this.floats[i]));
+        }
+        return hash;
+    }
+
+    public void pushInt(int value) {
+        if (this.intSize == this.ints.length) {
+            this.ints = Arrays.copyOf(this.ints, this.ints.length * 2);
+        }
+        this.ints[this.intSize++] = value;
+    }
+
+    public int popInt() {
+        return this.ints[--this.intSize];
+    }
+
+    public void pushFloat(float value) {
+        if (this.floatSize == this.floats.length) {
+            this.floats = Arrays.copyOf(this.floats, this.floats.length * 2);
+        }
+        this.floats[this.floatSize++] = value;
+    }
+
+    public float popFloat() {
+        return this.floats[--this.floatSize];
+    }
+
+    /**
+     * Push a value that only changes how the sprite is drawn, it is restored as a normal int
+     * but it is not part of the state hash
+     *
+     * @param value the value to save
+     */
+    public void pushGraphicsInt(int value) {
+        if (!this.hashOnly) {
+            this.pushInt(value);
+        }
+    }
+
+    /**
+     * Push a value that only changes how the sprite is drawn, it is restored as a normal float
+     * but it is not part of the state hash
+     *
+     * @param value the value to save
+     */
+    public void pushGraphicsFloat(float value) {
+        if (!this.hashOnly) {
+            this.pushFloat(value);
+        }
+    }
+
+    public void pushBoolean(boolean value) {
+        this.pushInt(value ? 1 : 0);
+    }
+
+    public boolean popBoolean() {
+        return this.popInt() != 0;
+    }
+
+    public void pushObject(Object value) {
+        if (this.objectSize == this.objects.length) {
+            this.objects = Arrays.copyOf(this.objects, this.objects.length * 2);
+        }
+        this.objects[this.objectSize++] = value;
+    }
+
+    public Object popObject() {
+        Object value = this.objects[--this.objectSize];
+        this.objects[this.objectSize] = null;
+        return value;
+    }
+}
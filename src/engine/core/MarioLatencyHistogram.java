@@ -0,0 +1,110 @@
+package engine.core;
+
+/**
+ * Histogram of time measurements in nanoseconds. Values are stored in buckets that grow with the
+ * value so every recorded value is kept with at most 1/16 relative error, the maximum is exact.
+ */
+public class MarioLatencyHistogram {
+    private static final int SUB_BUCKETS = 16;
+    private static final int SUB_BITS = 4;
+
+    private int[] counts;
+    private long count;
+    private long total;
+    private long max;
+
+    /**
+     * Create an empty histogram
+     */
+    public MarioLatencyHistogram() {
+        this.counts = new int[(64 - SUB_BITS) * SUB_BUCKETS];
+    }
+
+    private static int getBucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long getBucketMaxValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+        return lower + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Add a new measurement to the histogram
+     *
+     * @param nanos the measured time in nanoseconds, negative values are counted as zero
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        this.counts[getBucket(nanos)] += 1;
+        this.count += 1;
+        this.total += nanos;
+        this.max = Math.max(this.max, nanos);
+    }
+
+    /**
+     * Add all the measurements of another histogram to this one
+     *
+     * @param other the histogram that is added
+     */
+    public void add(MarioLatencyHistogram other) {
+        for (int i = 0; i < this.counts.length; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.count += other.count;
+        this.total += other.total;
+        this.max = Math.max(this.max, other.max);
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public long getMaxNanos() {
+        return this.max;
+    }
+
+    public double getMeanNanos() {
+        if (this.count == 0) {
+            return 0;
+        }
+        return (double) this.total / this.count;
+    }
+
+    /**
+     * Get the time that a certain percentage of the measurements didn't exceed
+     *
+     * @param percentile a value between 0 and 100 (50 for the median)
+     * @return the percentile in nanoseconds or 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100.0 * this.count));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(getBucketMaxValue(i), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("p50: %.3f p95: %.3f p99: %.3f max: %.3f msec",
+                this.getPercentileNanos(50) / 1e6, this.getPercentileNanos(95) / 1e6,
+                this.getPercentileNanos(99) / 1e6, this.max / 1e6);
+    }
+}
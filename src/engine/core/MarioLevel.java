@@ -1,7 +1,7 @@
 package engine.core;
 
 import java.awt.Graphics;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import engine.graphics.MarioImage;
 import engine.graphics.MarioTilemap;
@@ -18,18 +18,43 @@ public class MarioLevel {
     public int totalCoins = 0;
     public int marioTileX, marioTileY, exitTileX, exitTileY;
 
-    private int[][] levelTiles;
-    private SpriteType[][] spriteTemplates;
-    private int[][] lastSpawnTime;
+    //the level is padded with copies of its first and last column on the sides and empty rows above and below,
+    //so the reads of sprites near the edges stay inside the array without being clamped
+    private static final int PAD_COLUMNS = 4;
+    private static final int PAD_ROWS = 4;
+
+    //shared between clones and never changed after loading, changes go to the overlay. The tiles are stored
+    //column by column, tile (x, y) is at (x + PAD_COLUMNS) * tileStride + y + PAD_ROWS
+    private int[] levelTiles;
+    private int tileStride;
+    private MarioTileOverlay modifiedTiles;
+    //zobrist hash of the modified tiles and spawn ticks, clones of the same level with the same state have the same hash
+    private long stateHash;
+    //the sprite of each template, indexed by the template index
+    private SpriteType[] spriteTemplates;
+    //index of each sprite template in lastSpawnTime (-1 if the tile has no template), tile (x, y) is at x * tileHeight + y
+    private int[] spawnIndex;
+    private int[] lastSpawnTime;
     private MarioTilemap graphics;
+    //set by the world while it is recording changes
+    MarioJournal journal;
     private MarioImage flag;
 
+    private MarioLevel() {
+    }
+
     public MarioLevel(String level, boolean visuals) {
         if (level.trim().length() == 0) {
             this.tileWidth = 0;
             this.width = 0;
             this.tileHeight = 0;
             this.height = 0;
+            this.tileStride = 2 * PAD_ROWS;
+            this.levelTiles = new int[2 * PAD_COLUMNS * this.tileStride];
+            this.modifiedTiles = new MarioTileOverlay();
+            this.spriteTemplates = new SpriteType[0];
+            this.spawnIndex = new int[0];
+            this.lastSpawnTime = new int[0];
             return;
         }
         String[] lines = level.split("\\r?\\n");
@@ -38,15 +63,12 @@ public class MarioLevel {
         this.tileHeight = lines.length;
         this.height = this.tileHeight * 16;
 
-        this.levelTiles = new int[lines[0].length()][lines.length];
-        this.spriteTemplates = new SpriteType[lines[0].length()][lines.length];
-        this.lastSpawnTime = new int[lines[0].length()][lines.length];
-        for (int y = 0; y < lines.length; y++) {
-            for (int x = 0; x < lines[y].length(); x++) {
-                this.levelTiles[x][y] = 0;
-                this.spriteTemplates[x][y] = SpriteType.NONE;
-                this.lastSpawnTime[x][y] = -40;
-            }
+        this.tileStride = this.tileHeight + 2 * PAD_ROWS;
+        this.levelTiles = new int[(this.tileWidth + 2 * PAD_COLUMNS) * this.tileStride];
+        this.modifiedTiles = new MarioTileOverlay();
+        SpriteType[][] templates = new SpriteType[this.tileWidth][this.tileHeight];
+        for (int x = 0; x < this.tileWidth; x++) {
+            Arrays.fill(templates[x], SpriteType.NONE);
         }
 
         boolean marioLocInit = false;
@@ -66,37 +88,37 @@ public class MarioLevel {
                         exitLocInit = true;
                         break;
                     case 'y':
-                        this.spriteTemplates[x][y] = SpriteType.SPIKY;
+                        templates[x][y] = SpriteType.SPIKY;
                         break;
                     case 'Y':
-                        this.spriteTemplates[x][y] = SpriteType.SPIKY_WINGED;
+                        templates[x][y] = SpriteType.SPIKY_WINGED;
                         break;
                     case 'E':
                     case 'g':
-                        this.spriteTemplates[x][y] = SpriteType.GOOMBA;
+                        templates[x][y] = SpriteType.GOOMBA;
                         break;
                     case 'G':
-                        this.spriteTemplates[x][y] = SpriteType.GOOMBA_WINGED;
+                        templates[x][y] = SpriteType.GOOMBA_WINGED;
                         break;
                     case 'k':
-                        this.spriteTemplates[x][y] = SpriteType.GREEN_KOOPA;
+                        templates[x][y] = SpriteType.GREEN_KOOPA;
                         break;
                     case 'K':
-                        this.spriteTemplates[x][y] = SpriteType.GREEN_KOOPA_WINGED;
+                        templates[x][y] = SpriteType.GREEN_KOOPA_WINGED;
                         break;
                     case 'r':
-                        this.spriteTemplates[x][y] = SpriteType.RED_KOOPA;
+                        templates[x][y] = SpriteType.RED_KOOPA;
                         break;
                     case 'R':
-                        this.spriteTemplates[x][y] = SpriteType.RED_KOOPA_WINGED;
+                        templates[x][y] = SpriteType.RED_KOOPA_WINGED;
                         break;
                     case 'X':
                         //floor
-                        this.levelTiles[x][y] = 1;
+                        this.levelTiles[this.getTileIndex(x, y)] = 1;
                         break;
                     case '#':
                         //pyramidBlock
-                        this.levelTiles[x][y] = 2;
+                        this.levelTiles[this.getTileIndex(x, y)] = 2;
                         break;
                     case '%':
                         //jump through block
@@ -104,14 +126,14 @@ public class MarioLevel {
                         if (x > 0 && lines[y].charAt(x - 1) == '%') {
                             tempIndex += 2;
                         }
-                        if (x < this.levelTiles.length - 1 && lines[y].charAt(x + 1) == '%') {
+                        if (x < this.tileWidth - 1 && lines[y].charAt(x + 1) == '%') {
                             tempIndex += 1;
                         }
-                        this.levelTiles[x][y] = 43 + tempIndex;
+                        this.levelTiles[this.getTileIndex(x, y)] = 43 + tempIndex;
                         break;
                     case '|':
                         //background for jump through block
-                        this.levelTiles[x][y] = 47;
+                        this.levelTiles[this.getTileIndex(x, y)] = 47;
                         break;
                     case '*':
                         //bullet bill
@@ -122,11 +144,11 @@ public class MarioLevel {
                         if (y > 1 && lines[y - 2].charAt(x) == '*') {
                             tempIndex += 1;
                         }
-                        this.levelTiles[x][y] = 3 + tempIndex;
+                        this.levelTiles[this.getTileIndex(x, y)] = 3 + tempIndex;
                         break;
                     case 'B':
                         //bullet bill head
-                        this.levelTiles[x][y] = 3;
+                        this.levelTiles[this.getTileIndex(x, y)] = 3;
                         break;
                     case 'b':
                         //bullet bill neck and body
@@ -134,53 +156,53 @@ public class MarioLevel {
                         if (y > 1 && lines[y - 2].charAt(x) == 'B') {
                             tempIndex += 1;
                         }
-                        this.levelTiles[x][y] = 4 + tempIndex;
+                        this.levelTiles[this.getTileIndex(x, y)] = 4 + tempIndex;
                         break;
                     case '?':
                     case '@':
                         //mushroom question block
-                        this.levelTiles[x][y] = 8;
+                        this.levelTiles[this.getTileIndex(x, y)] = 8;
                         break;
                     case 'Q':
                     case '!':
                         //coin question block
                         this.totalCoins += 1;
-                        this.levelTiles[x][y] = 11;
+                        this.levelTiles[this.getTileIndex(x, y)] = 11;
                         break;
                     case '1':
                         //invisible 1 up block
-                        this.levelTiles[x][y] = 48;
+                        this.levelTiles[this.getTileIndex(x, y)] = 48;
                         break;
                     case '2':
                         //invisible coin block
                         this.totalCoins += 1;
-                        this.levelTiles[x][y] = 49;
+                        this.levelTiles[this.getTileIndex(x, y)] = 49;
                         break;
                     case 'D':
                         //used
-                        this.levelTiles[x][y] = 14;
+                        this.levelTiles[this.getTileIndex(x, y)] = 14;
                         break;
                     case 'S':
                         //normal block
-                        this.levelTiles[x][y] = 6;
+                        this.levelTiles[this.getTileIndex(x, y)] = 6;
                         break;
                     case 'C':
                         //coin block
                         this.totalCoins += 1;
-                        this.levelTiles[x][y] = 7;
+                        this.levelTiles[this.getTileIndex(x, y)] = 7;
                         break;
                     case 'U':
                         //mushroom block
-                        this.levelTiles[x][y] = 50;
+                        this.levelTiles[this.getTileIndex(x, y)] = 50;
                         break;
                     case 'L':
                         //1up block
-                        this.levelTiles[x][y] = 51;
+                        this.levelTiles[this.getTileIndex(x, y)] = 51;
                         break;
                     case 'o':
                         //coin
                         this.totalCoins += 1;
-                        this.levelTiles[x][y] = 15;
+                        this.levelTiles[this.getTileIndex(x, y)] = 15;
                         break;
                     case 't':
                         //empty Pipe
@@ -190,7 +212,7 @@ public class MarioLevel {
                                 x > 0 && Character.toLowerCase(lines[y].charAt(x - 1)) != 't') {
                             singlePipe = true;
                         }
-                        if (x > 0 && (this.levelTiles[x - 1][y] == 18 || this.levelTiles[x - 1][y] == 20)) {
+                        if (x > 0 && (this.levelTiles[this.getTileIndex(x - 1, y)] == 18 || this.levelTiles[this.getTileIndex(x - 1, y)] == 20)) {
                             tempIndex += 1;
                         }
                         if (y > 0 && Character.toLowerCase(lines[y - 1].charAt(x)) == 't') {
@@ -201,9 +223,9 @@ public class MarioLevel {
                             }
                         }
                         if (singlePipe) {
-                            this.levelTiles[x][y] = 52 + tempIndex;
+                            this.levelTiles[this.getTileIndex(x, y)] = 52 + tempIndex;
                         } else {
-                            this.levelTiles[x][y] = 18 + tempIndex;
+                            this.levelTiles[this.getTileIndex(x, y)] = 18 + tempIndex;
                         }
                         break;
                     case 'T':
@@ -211,7 +233,7 @@ public class MarioLevel {
                         tempIndex = 0;
                         singlePipe = x < lines[y].length() - 1 && Character.toLowerCase(lines[y].charAt(x + 1)) != 't' &&
                                 x > 0 && Character.toLowerCase(lines[y].charAt(x - 1)) != 't';
-                        if (x > 0 && (this.levelTiles[x - 1][y] == 18 || this.levelTiles[x - 1][y] == 20)) {
+                        if (x > 0 && (this.levelTiles[this.getTileIndex(x - 1, y)] == 18 || this.levelTiles[this.getTileIndex(x - 1, y)] == 20)) {
                             tempIndex += 1;
                         }
                         if (y > 0 && Character.toLowerCase(lines[y - 1].charAt(x)) == 't') {
@@ -222,29 +244,29 @@ public class MarioLevel {
                             }
                         }
                         if (singlePipe) {
-                            this.levelTiles[x][y] = 52 + tempIndex;
+                            this.levelTiles[this.getTileIndex(x, y)] = 52 + tempIndex;
                         } else {
                             if (tempIndex == 0) {
-                                this.spriteTemplates[x][y] = SpriteType.ENEMY_FLOWER;
+                                templates[x][y] = SpriteType.ENEMY_FLOWER;
                             }
-                            this.levelTiles[x][y] = 18 + tempIndex;
+                            this.levelTiles[this.getTileIndex(x, y)] = 18 + tempIndex;
                         }
                         break;
                     case '<':
                         //pipe top left
-                        this.levelTiles[x][y] = 18;
+                        this.levelTiles[this.getTileIndex(x, y)] = 18;
                         break;
                     case '>':
                         //pipe top right
-                        this.levelTiles[x][y] = 19;
+                        this.levelTiles[this.getTileIndex(x, y)] = 19;
                         break;
                     case '[':
                         //pipe body left
-                        this.levelTiles[x][y] = 20;
+                        this.levelTiles[this.getTileIndex(x, y)] = 20;
                         break;
                     case ']':
                         //pipe body right
-                        this.levelTiles[x][y] = 21;
+                        this.levelTiles[this.getTileIndex(x, y)] = 21;
                         break;
                 }
             }
@@ -258,12 +280,39 @@ public class MarioLevel {
             this.exitTileY = findFirstFloor(lines, this.exitTileX);
         }
         for (int y = this.exitTileY; y > Math.max(1, this.exitTileY - 11); y--) {
-            this.levelTiles[this.exitTileX][y] = 40;
+            this.levelTiles[this.getTileIndex(this.exitTileX, y)] = 40;
+        }
+        this.levelTiles[this.getTileIndex(this.exitTileX, Math.max(1, this.exitTileY - 11))] = 39;
+        for (int x = 0; x < PAD_COLUMNS; x++) {
+            System.arraycopy(this.levelTiles, this.getTileIndex(0, -PAD_ROWS), this.levelTiles,
+                    this.getTileIndex(x - PAD_COLUMNS, -PAD_ROWS), this.tileStride);
+            System.arraycopy(this.levelTiles, this.getTileIndex(this.tileWidth - 1, -PAD_ROWS), this.levelTiles,
+                    this.getTileIndex(this.tileWidth + x, -PAD_ROWS), this.tileStride);
         }
-        this.levelTiles[this.exitTileX][Math.max(1, this.exitTileY - 11)] = 39;
+
+        int numberOfTemplates = 0;
+        SpriteType[] spawnTemplates = new SpriteType[this.tileWidth * this.tileHeight];
+        this.spawnIndex = new int[this.tileWidth * this.tileHeight];
+        for (int x = 0; x < this.tileWidth; x++) {
+            for (int y = 0; y < this.tileHeight; y++) {
+                this.spawnIndex[x * this.tileHeight + y] = -1;
+                if (templates[x][y] != SpriteType.NONE) {
+                    this.spawnIndex[x * this.tileHeight + y] = numberOfTemplates;
+                    spawnTemplates[numberOfTemplates] = templates[x][y];
+                    numberOfTemplates += 1;
+                }
+            }
+        }
+        this.spriteTemplates = Arrays.copyOf(spawnTemplates, numberOfTemplates);
+        this.lastSpawnTime = new int[numberOfTemplates];
+        Arrays.fill(this.lastSpawnTime, -40);
 
         if (visuals) {
-            this.graphics = new MarioTilemap(Assets.level, this.levelTiles);
+            int[][] graphicsTiles = new int[this.tileWidth][];
+            for (int x = 0; x < this.tileWidth; x++) {
+                graphicsTiles[x] = Arrays.copyOfRange(this.levelTiles, this.getTileIndex(x, 0), this.getTileIndex(x, this.tileHeight));
+            }
+            this.graphics = new MarioTilemap(Assets.level, graphicsTiles);
             this.flag = new MarioImage(Assets.level, 41);
             this.flag.width = 16;
             this.flag.height = 16;
@@ -271,7 +320,7 @@ public class MarioLevel {
     }
 
     public MarioLevel clone() {
-        MarioLevel level = new MarioLevel("", false);
+        MarioLevel level = new MarioLevel();
         level.width = this.width;
         level.height = this.height;
         level.tileWidth = this.tileWidth;
@@ -281,78 +330,205 @@ public class MarioLevel {
         level.marioTileY = this.marioTileY;
         level.exitTileX = this.exitTileX;
         level.exitTileY = this.exitTileY;
-        level.levelTiles = new int[this.levelTiles.length][this.levelTiles[0].length];
-        level.lastSpawnTime = new int[this.levelTiles.length][this.levelTiles[0].length];
-        for (int x = 0; x < level.levelTiles.length; x++) {
-            for (int y = 0; y < level.levelTiles[x].length; y++) {
-                level.levelTiles[x][y] = this.levelTiles[x][y];
-                level.lastSpawnTime[x][y] = this.lastSpawnTime[x][y];
-            }
-        }
+        level.levelTiles = this.levelTiles;
+        level.tileStride = this.tileStride;
+        level.modifiedTiles = this.modifiedTiles.clone();
+        level.stateHash = this.stateHash;
         level.spriteTemplates = this.spriteTemplates;
+        level.spawnIndex = this.spawnIndex;
+        level.lastSpawnTime = this.lastSpawnTime.clone();
         return level;
     }
 
     public boolean isBlocking(int xTile, int yTile, float xa, float ya) {
         int block = this.getBlock(xTile, yTile);
-        ArrayList<TileFeature> features = TileFeature.getTileType(block);
-        boolean blocking = features.contains(TileFeature.BLOCK_ALL);
-        blocking |= (ya < 0) && features.contains(TileFeature.BLOCK_UPPER);
-        blocking |= (ya > 0) && features.contains(TileFeature.BLOCK_LOWER);
+        int features = TileFeature.getTileFeatures(block);
+        boolean blocking = (features & TileFeature.BLOCK_ALL.getMask()) != 0;
+        blocking |= (ya < 0) && (features & TileFeature.BLOCK_UPPER.getMask()) != 0;
+        blocking |= (ya > 0) && (features & TileFeature.BLOCK_LOWER.getMask()) != 0;
 
         return blocking;
     }
 
-    public int getBlock(int xTile, int yTile) {
-        if (xTile < 0) {
-            xTile = 0;
-        }
-        if (xTile > this.tileWidth - 1) {
-            xTile = this.tileWidth - 1;
+    private int getTileIndex(int xTile, int yTile) {
+        return (xTile + PAD_COLUMNS) * this.tileStride + yTile + PAD_ROWS;
+    }
+
+    private int getTile(int key) {
+        if (this.modifiedTiles.size() == 0) {
+            return this.levelTiles[key];
         }
-        if (yTile < 0 || yTile > this.tileHeight - 1) {
-            return 0;
+        return this.modifiedTiles.get(key, this.levelTiles[key]);
+    }
+
+    /**
+     * Get the tile index at a certain position, the level continues sideways with its first and last column
+     * and it is empty above and below
+     *
+     * @param xTile the x position in tiles
+     * @param yTile the y position in tiles
+     * @return the tile index at that position
+     */
+    public int getBlock(int xTile, int yTile) {
+        int column = xTile + PAD_COLUMNS;
+        int row = yTile + PAD_ROWS;
+        if (column < 0 || row < 0 || column >= this.tileWidth + 2 * PAD_COLUMNS || row >= this.tileStride) {
+            //far outside the level, the outermost padding has the same tiles
+            column = Math.max(0, Math.min(column, this.tileWidth + 2 * PAD_COLUMNS - 1));
+            row = Math.max(0, Math.min(row, this.tileStride - 1));
         }
-        return this.levelTiles[xTile][yTile];
+        return this.getTile(column * this.tileStride + row);
+    }
+
+    /**
+     * Get the tile index at the nearest position inside the level, used by the observations that repeat the
+     * edges of the level in every direction
+     *
+     * @param xTile the x position in tiles
+     * @param yTile the y position in tiles
+     * @return the tile index at the nearest position inside the level
+     */
+    int getNearestBlock(int xTile, int yTile) {
+        return this.getTile(this.getTileIndex(Math.max(0, Math.min(xTile, this.tileWidth - 1)),
+                Math.max(0, Math.min(yTile, this.tileHeight - 1))));
     }
 
     public void setBlock(int xTile, int yTile, int index) {
         if (xTile < 0 || yTile < 0 || xTile > this.tileWidth - 1 || yTile > this.tileHeight - 1) {
             return;
         }
-        this.levelTiles[xTile][yTile] = index;
+        int key = this.getTileIndex(xTile, yTile);
+        if (this.journal != null) {
+            this.journal.pushInt(this.getTile(key));
+            this.journal.pushInt(key);
+            this.journal.pushInt(0);
+            this.journal.pushObject(this);
+        }
+        this.updateTile(key, index);
+    }
+
+    private void updateTile(int key, int index) {
+        this.stateHash ^= getTileHash(key, this.getTile(key)) ^ getTileHash(key, index);
+        this.modifiedTiles.put(key, index);
+        int xTile = key / this.tileStride - PAD_COLUMNS;
+        int yTile = key % this.tileStride - PAD_ROWS;
+        //the padding copies the edge columns, only the real tile is part of the hash
+        for (int x = 0; x < PAD_COLUMNS; x++) {
+            if (xTile == 0) {
+                this.modifiedTiles.put(this.getTileIndex(x - PAD_COLUMNS, yTile), index);
+            }
+            if (xTile == this.tileWidth - 1) {
+                this.modifiedTiles.put(this.getTileIndex(this.tileWidth + x, yTile), index);
+            }
+        }
+        if (this.graphics != null) {
+            this.graphics.setTile(xTile, yTile, index);
+        }
+    }
+
+    private static long getTileHash(int key, int index) {
+        return MarioWorld.mixHash(((long) key << 16) | (index & 0xFFFF));
+    }
+
+    private static long getSpawnHash(int spriteCode, int tick) {
+        //inverted so the keys never match the ones of the tiles
+        return MarioWorld.mixHash(~(((long) spriteCode << 32) | (tick & 0xFFFFFFFFL)));
+    }
+
+    private void updateSpawnTick(int spriteCode, int tick) {
+        this.stateHash ^= getSpawnHash(spriteCode, this.lastSpawnTime[spriteCode]) ^ getSpawnHash(spriteCode, tick);
+        this.lastSpawnTime[spriteCode] = tick;
+    }
+
+    /**
+     * Get a hash of all the tiles and sprite template spawn ticks that changed since the level was loaded,
+     * the spawn ticks decide if a template spawns its sprite again
+     *
+     * @return a 64 bit hash that is updated every time a tile or a spawn tick changes
+     */
+    public long getStateHash() {
+        return this.stateHash;
     }
 
     public void setShiftIndex(int xTile, int yTile, int shift) {
         if (this.graphics == null || xTile < 0 || yTile < 0 || xTile > this.tileWidth - 1 || yTile > this.tileHeight - 1) {
             return;
         }
-        this.graphics.moveShift[xTile][yTile] = shift;
+        this.graphics.setMoveShift(xTile, yTile, shift);
     }
 
     public SpriteType getSpriteType(int xTile, int yTile) {
-        if (xTile < 0 || yTile < 0 || xTile >= this.tileWidth || yTile >= this.tileHeight) {
+        int index = this.getSpriteCode(xTile, yTile);
+        if (index < 0) {
             return SpriteType.NONE;
         }
-        return this.spriteTemplates[xTile][yTile];
+        return this.spriteTemplates[index];
+    }
+
+    /**
+     * Get the sprite type of a sprite template
+     *
+     * @param spriteCode the template index returned by getSpriteCode
+     * @return the sprite type that the template spawns
+     */
+    public SpriteType getSpriteTemplate(int spriteCode) {
+        return this.spriteTemplates[spriteCode];
     }
 
     public int getLastSpawnTick(int xTile, int yTile) {
         if (xTile < 0 || yTile < 0 || xTile > this.tileWidth - 1 || yTile > this.tileHeight - 1) {
             return 0;
         }
-        return this.lastSpawnTime[xTile][yTile];
+        int index = this.spawnIndex[xTile * this.tileHeight + yTile];
+        if (index < 0) {
+            return -40;
+        }
+        return this.lastSpawnTime[index];
+    }
+
+    /**
+     * Get the last tick a sprite template was on screen
+     *
+     * @param spriteCode the template index returned by getSpriteCode
+     * @return the tick the template was last seen
+     */
+    public int getLastSpawnTick(int spriteCode) {
+        return this.lastSpawnTime[spriteCode];
     }
 
     public void setLastSpawnTick(int xTile, int yTile, int tick) {
-        if (xTile < 0 || yTile < 0 || xTile > this.tileWidth - 1 || yTile > this.tileHeight - 1) {
-            return;
+        int index = this.getSpriteCode(xTile, yTile);
+        if (index >= 0) {
+            if (this.journal != null) {
+                this.journal.pushInt(this.lastSpawnTime[index]);
+                this.journal.pushInt(index);
+                this.journal.pushInt(1);
+                this.journal.pushObject(this);
+            }
+            this.updateSpawnTick(index, tick);
+        }
+    }
+
+    void restoreState(MarioJournal journal) {
+        int kind = journal.popInt();
+        int key = journal.popInt();
+        int value = journal.popInt();
+        if (kind == 0) {
+            this.updateTile(key, value);
+        } else {
+            this.updateSpawnTick(key, value);
+        }
+    }
+
+    public int getSpriteCode(int xTile, int yTile) {
+        if (xTile < 0 || yTile < 0 || xTile >= this.tileWidth || yTile >= this.tileHeight) {
+            return -1;
         }
-        this.lastSpawnTime[xTile][yTile] = tick;
+        return this.spawnIndex[xTile * this.tileHeight + yTile];
     }
 
-    public String getSpriteCode(int xTile, int yTile) {
-        return xTile + "_" + yTile + "_" + this.getSpriteType(xTile, yTile).getValue();
+    public int getNumberOfSpriteTemplates() {
+        return this.lastSpawnTime.length;
     }
 
     private boolean isSolid(char c) {
@@ -0,0 +1,373 @@
+package engine.core;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import javax.imageio.ImageIO;
+
+import engine.helper.SpriteType;
+import engine.sprites.Enemy;
+import engine.sprites.Mario;
+import engine.sprites.Shell;
+
+/**
+ * Draws a mario world into a pixel buffer without any window or graphics device, so it works with
+ * java.awt.headless=true and on forward model clones that were created without visuals. The sprite sheets
+ * are loaded once and stored as indices into a shared palette, the frame is drawn at the output resolution
+ * (every downscale-th pixel of the 256x256 screen) and can be read as rgb, grayscale or palette indices.
+ * Animations that only exist in the visual sprites (walk cycles, animated tiles, bumps and effects) are not
+ * drawn, every sprite uses a pose picked from its current state.
+ */
+public class MarioPixelRenderer {
+    private static class Sheet {
+        int cellWidth, cellHeight, columns, rows;
+        int[][][] cells;
+    }
+
+    private static Sheet level, enemies, items, particles, mario, smallMario, fireMario;
+    private static int[] palette;
+    private static byte[] grayPalette;
+    private static int[] background;
+
+    private int downscale;
+    private int width, height;
+    private int[] frame;
+
+    /**
+     * Create a renderer for full size frames (256x256)
+     */
+    public MarioPixelRenderer() {
+        this(1);
+    }
+
+    /**
+     * Create a renderer
+     *
+     * @param downscale the screen width and height are divided by this value, it has to divide 256 (1, 2, 4, 8, 16)
+     */
+    public MarioPixelRenderer(int downscale) {
+        if (downscale <= 0 || MarioGame.width % downscale != 0 || MarioGame.height % downscale != 0) {
+            throw new IllegalArgumentException("Downscale has to divide the screen size: " + downscale);
+        }
+        loadSheets();
+        this.downscale = downscale;
+        this.width = MarioGame.width / downscale;
+        this.height = MarioGame.height / downscale;
+        this.frame = new int[this.width * this.height];
+    }
+
+    private static synchronized void loadSheets() {
+        if (palette != null) {
+            return;
+        }
+        HashMap<Integer, Integer> colors = new HashMap<>();
+        ArrayList<Integer> paletteList = new ArrayList<>();
+        //index 0 is used for transparent pixels
+        paletteList.add(0xFF000000);
+        try {
+            level = cutSheet("mapsheet.png", 16, 16, colors, paletteList);
+            enemies = cutSheet("enemysheet.png", 16, 32, colors, paletteList);
+            items = cutSheet("itemsheet.png", 16, 16, colors, paletteList);
+            particles = cutSheet("particlesheet.png", 16, 16, colors, paletteList);
+            mario = cutSheet("mariosheet.png", 32, 32, colors, paletteList);
+            smallMario = cutSheet("smallmariosheet.png", 16, 16, colors, paletteList);
+            fireMario = cutSheet("firemariosheet.png", 32, 32, colors, paletteList);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't load the sprite sheets", e);
+        }
+        int[] rgb = new int[paletteList.size()];
+        byte[] gray = new byte[paletteList.size()];
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] = paletteList.get(i);
+            int r = (rgb[i] >> 16) & 0xFF;
+            int g = (rgb[i] >> 8) & 0xFF;
+            int b = rgb[i] & 0xFF;
+            gray[i] = (byte) ((299 * r + 587 * g + 114 * b) / 1000);
+        }
+        grayPalette = gray;
+        background = createBackground();
+        palette = rgb;
+    }
+
+    private static BufferedImage readImage(String imageName) throws IOException {
+        InputStream stream = MarioPixelRenderer.class.getResourceAsStream("/" + imageName);
+        if (stream != null) {
+            try {
+                return ImageIO.read(stream);
+            } finally {
+                stream.close();
+            }
+        }
+        return ImageIO.read(new File(System.getProperty("user.dir") + "/img/" + imageName));
+    }
+
+    private static Sheet cutSheet(String imageName, int cellWidth, int cellHeight,
+                                  HashMap<Integer, Integer> colors, ArrayList<Integer> paletteList) throws IOException {
+        BufferedImage image = readImage(imageName);
+        Sheet sheet = new Sheet();
+        sheet.cellWidth = cellWidth;
+        sheet.cellHeight = cellHeight;
+        sheet.columns = image.getWidth() / cellWidth;
+        sheet.rows = image.getHeight() / cellHeight;
+        sheet.cells = new int[sheet.columns][sheet.rows][cellWidth * cellHeight];
+        for (int x = 0; x < sheet.columns * cellWidth; x++) {
+            for (int y = 0; y < sheet.rows * cellHeight; y++) {
+                int argb = image.getRGB(x, y);
+                int index = 0;
+                //same as the bitmask transparency used by the assets
+                if ((argb >>> 24) >= 128) {
+                    Integer color = argb | 0xFF000000;
+                    if (!colors.containsKey(color)) {
+                        colors.put(color, paletteList.size());
+                        paletteList.add(color);
+                    }
+                    index = colors.get(color);
+                }
+                sheet.cells[x / cellWidth][y / cellHeight][(y % cellHeight) * cellWidth + x % cellWidth] = index;
+            }
+        }
+        return sheet;
+    }
+
+    private static void drawCell(int[] target, int targetWidth, Sheet sheet, int index, int x, int y) {
+        int[] cell = sheet.cells[index % sheet.columns][index / sheet.columns];
+        for (int v = 0; v < sheet.cellHeight; v++) {
+            for (int u = 0; u < sheet.cellWidth; u++) {
+                if (cell[v * sheet.cellWidth + u] != 0) {
+                    target[(y + v) * targetWidth + x + u] = cell[v * sheet.cellWidth + u];
+                }
+            }
+        }
+    }
+
+    private static int[] createBackground() {
+        //the same two background layers used by the world visuals, both repeat every 256 pixels
+        int[] pixels = new int[MarioGame.width * MarioGame.height];
+        for (int y = 0; y < MarioGame.height / 16; y++) {
+            for (int x = 0; x < MarioGame.width / 16; x++) {
+                drawCell(pixels, MarioGame.width, level, 42, x * 16, y * 16);
+            }
+        }
+        int[][] clouds = new int[][]{
+                new int[]{31, 32, 33, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                new int[]{34, 35, 36, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                new int[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                new int[]{0, 0, 0, 0, 0, 0, 0, 0, 31, 32, 33, 0, 0, 0, 0, 0},
+                new int[]{0, 0, 0, 0, 0, 0, 0, 0, 34, 35, 36, 0, 0, 0, 0, 0}
+        };
+        for (int y = 0; y < clouds.length; y++) {
+            for (int x = 0; x < clouds[y].length; x++) {
+                if (clouds[y][x] != 0) {
+                    drawCell(pixels, MarioGame.width, level, clouds[y][x], x * 16, (y + 2) * 16);
+                }
+            }
+        }
+        return pixels;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Get the colors used by the palette indices
+     *
+     * @return the rgb value of every palette index
+     */
+    public int[] getPalette() {
+        return palette.clone();
+    }
+
+    private void draw(Sheet sheet, int index, int x, int y, boolean flipX) {
+        if (index < 0 || index >= sheet.columns * sheet.rows) {
+            return;
+        }
+        int[] cell = sheet.cells[index % sheet.columns][index / sheet.columns];
+        int s = this.downscale;
+        int xStart = (Math.max(0, x) + s - 1) / s;
+        int yStart = (Math.max(0, y) + s - 1) / s;
+        int xEnd = Math.min(this.width - 1, Math.floorDiv(x + sheet.cellWidth - 1, s));
+        int yEnd = Math.min(this.height - 1, Math.floorDiv(y + sheet.cellHeight - 1, s));
+        for (int oy = yStart; oy <= yEnd; oy++) {
+            int row = (oy * s - y) * sheet.cellWidth;
+            int offset = oy * this.width;
+            for (int ox = xStart; ox <= xEnd; ox++) {
+                int u = ox * s - x;
+                int value = cell[row + (flipX ? sheet.cellWidth - 1 - u : u)];
+                if (value != 0) {
+                    this.frame[offset + ox] = value;
+                }
+            }
+        }
+    }
+
+    private void drawSprite(MarioSprite sprite, int cameraX, int cameraY) {
+        int x = (int) (sprite.x - cameraX);
+        int y = (int) (sprite.y - cameraY);
+        boolean flipX = sprite.facing == -1;
+        switch (sprite.type) {
+            case MARIO:
+                Mario mario = (Mario) sprite;
+                if (((mario.getInvulnerableTime() / 2) & 1) != 0) {
+                    return;
+                }
+                boolean fast = Math.abs(mario.xa) > 10;
+                if (mario.isLarge) {
+                    int index = mario.onGround ? (mario.isDucking ? 13 : (fast ? 3 : 0)) : (fast ? 6 : 5);
+                    this.draw(mario.isFire ? fireMario : MarioPixelRenderer.mario, index, x - 16, y - 31, flipX);
+                } else {
+                    int index = mario.onGround ? (fast ? 2 : 0) : (fast ? 5 : 4);
+                    this.draw(smallMario, index, x - 8, y - 15, flipX);
+                }
+                break;
+            case MUSHROOM:
+                this.draw(items, 0, x - 8, y - 15, false);
+                break;
+            case FIRE_FLOWER:
+                this.draw(items, 1, x - 8, y - 15, false);
+                break;
+            case LIFE_MUSHROOM:
+                this.draw(items, 3, x - 8, y - 15, false);
+                break;
+            case FIREBALL:
+                this.draw(particles, 24, x - 8, y - 8, flipX);
+                break;
+            case SHELL:
+                this.draw(enemies, ((Shell) sprite).getShellType() * 8 + 3, x - 8, y - 31, false);
+                break;
+            case BULLET_BILL:
+                this.draw(enemies, 40, x - 8, y - 31, flipX);
+                break;
+            case ENEMY_FLOWER:
+                this.draw(enemies, sprite.type.getStartIndex(), x - 8, y - 24, false);
+                break;
+            default:
+                boolean koopa = sprite.type == SpriteType.RED_KOOPA || sprite.type == SpriteType.GREEN_KOOPA ||
+                        sprite.type == SpriteType.RED_KOOPA_WINGED || sprite.type == SpriteType.GREEN_KOOPA_WINGED;
+                boolean winged = sprite instanceof Enemy && ((Enemy) sprite).isWinged();
+                if (winged && !koopa) {
+                    this.draw(enemies, 32, x - 6 - 16, y - 6 - 31, false);
+                    this.draw(enemies, 32, x + 22 - 16, y - 6 - 31, true);
+                }
+                this.draw(enemies, sprite.type.getStartIndex(), x - 8, y - 31, flipX);
+                if (winged && koopa) {
+                    this.draw(enemies, 32, x + (flipX ? 17 : -1) - 16, y - 8 - 31, flipX);
+                }
+                break;
+        }
+    }
+
+    private static boolean isBehindTiles(SpriteType type) {
+        return type == SpriteType.MUSHROOM || type == SpriteType.LIFE_MUSHROOM ||
+                type == SpriteType.FIRE_FLOWER || type == SpriteType.ENEMY_FLOWER;
+    }
+
+    /**
+     * Draw the current state of a forward model
+     *
+     * @param model the forward model to draw
+     */
+    public void render(MarioForwardModel model) {
+        this.render(model.getWorld());
+    }
+
+    /**
+     * Draw the current state of a world
+     *
+     * @param world the world to draw, it doesn't need to have visuals
+     */
+    public void render(MarioWorld world) {
+        int cameraX = (int) world.cameraX;
+        int cameraY = (int) world.cameraY;
+        int s = this.downscale;
+        int xOffset = Math.floorMod(cameraX, MarioGame.width);
+        for (int oy = 0; oy < this.height; oy++) {
+            int row = oy * s * MarioGame.width;
+            for (int ox = 0; ox < this.width; ox++) {
+                this.frame[oy * this.width + ox] = background[row + (ox * s + xOffset) % MarioGame.width];
+            }
+        }
+
+        MarioSpriteStore sprites = world.getSprites();
+        for (MarioSprite sprite : sprites) {
+            if (isBehindTiles(sprite.type)) {
+                this.drawSprite(sprite, cameraX, cameraY);
+            }
+        }
+
+        MarioLevel level = world.level;
+        int xMin = Math.max(0, cameraX / 16);
+        int yMin = Math.max(0, cameraY / 16);
+        int xMax = Math.min(level.tileWidth - 1, (cameraX + MarioGame.width) / 16);
+        int yMax = Math.min(level.tileHeight - 1, (cameraY + MarioGame.height) / 16);
+        for (int xTile = xMin; xTile <= xMax; xTile++) {
+            for (int yTile = yMin; yTile <= yMax; yTile++) {
+                this.draw(MarioPixelRenderer.level, level.getBlock(xTile, yTile), xTile * 16 - cameraX, yTile * 16 - cameraY, false);
+            }
+        }
+        if (cameraX + MarioGame.width >= level.exitTileX * 16) {
+            this.draw(MarioPixelRenderer.level, 41, level.exitTileX * 16 - 8 - cameraX,
+                    Math.max(1, level.exitTileY - 11) * 16 + 16 - cameraY, false);
+        }
+
+        for (MarioSprite sprite : sprites) {
+            if (!isBehindTiles(sprite.type)) {
+                this.drawSprite(sprite, cameraX, cameraY);
+            }
+        }
+    }
+
+    /**
+     * Get the last rendered frame as rgb values
+     *
+     * @param buffer the buffer that receives width * height rgb values in row major order, it is allocated if it is null
+     * @return the filled buffer
+     */
+    public int[] getRGB(int[] buffer) {
+        if (buffer == null) {
+            buffer = new int[this.frame.length];
+        }
+        for (int i = 0; i < this.frame.length; i++) {
+            buffer[i] = palette[this.frame[i]];
+        }
+        return buffer;
+    }
+
+    /**
+     * Get the last rendered frame as grayscale values
+     *
+     * @param buffer the buffer that receives width * height unsigned brightness values in row major order, it is allocated if it is null
+     * @return the filled buffer
+     */
+    public byte[] getGrayscale(byte[] buffer) {
+        if (buffer == null) {
+            buffer = new byte[this.frame.length];
+        }
+        for (int i = 0; i < this.frame.length; i++) {
+            buffer[i] = grayPalette[this.frame[i]];
+        }
+        return buffer;
+    }
+
+    /**
+     * Get the last rendered frame as indices into the palette
+     *
+     * @param buffer the buffer that receives width * height palette indices in row major order, it is allocated if it is null
+     * @return the filled buffer
+     */
+    public int[] getPaletteIndices(int[] buffer) {
+        if (buffer == null) {
+            buffer = new int[this.frame.length];
+        }
+        System.arraycopy(this.frame, 0, buffer, 0, this.frame.length);
+        return buffer;
+    }
+}
@@ -41,6 +41,17 @@ public class MarioRender extends JComponent implements FocusListener {
     }
 
     public void renderWorld(MarioWorld world, Image image, Graphics g, Graphics og) {
+        this.drawFrame(world, og);
+        this.present(image, g);
+    }
+
+    /**
+     * Paint the world and the hud into the frame without showing it
+     *
+     * @param world the world to paint
+     * @param og    the graphics of the 256x240 frame
+     */
+    void drawFrame(MarioWorld world, Graphics og) {
         og.fillRect(0, 0, 256, 240);
         world.render(og);
         drawStringDropShadow(og, "Lives: " + world.lives, 0, 0, 7);
@@ -55,6 +66,15 @@ public class MarioRender extends JComponent implements FocusListener {
             }
             drawStringDropShadow(og, "Buttons: " + pressedButtons, 0, 2, 1);
         }
+    }
+
+    /**
+     * Show a painted frame on the component
+     *
+     * @param image the frame
+     * @param g     the graphics of the component
+     */
+    void present(Image image, Graphics g) {
         if (scale > 1) {
             g.drawImage(image, 0, 0, (int) (256 * scale), (int) (240 * scale), null);
         } else {
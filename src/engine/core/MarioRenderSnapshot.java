@@ -0,0 +1,505 @@
+package engine.core;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.text.AttributedCharacterIterator;
+import java.text.AttributedString;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A frame recorded as a list of draw commands. The world is painted into the snapshot with its normal render
+ * code on the simulation thread, which keeps the animations and effects going, and the render thread replays the
+ * commands on the screen later. The snapshot only keeps references to the images (the sprite sheets, the
+ * background and the tile chunks, none of them are changed after they are drawn) and a few numbers per command.
+ * The recording graphics supports every Graphics operation: translations are applied to the recorded
+ * coordinates, and changes of the color, font, clip and paint mode are recorded when a command needs them.
+ * Clips that are not rectangles are recorded as their bounds.
+ */
+class MarioRenderSnapshot {
+    private static final int IMAGE = 0;
+    private static final int IMAGE_SCALED = 1;
+    private static final int IMAGE_AREA = 2;
+    private static final int FILL_RECT = 3;
+    private static final int CLEAR_RECT = 4;
+    private static final int DRAW_LINE = 5;
+    private static final int COPY_AREA = 6;
+    private static final int DRAW_ROUND_RECT = 7;
+    private static final int FILL_ROUND_RECT = 8;
+    private static final int DRAW_OVAL = 9;
+    private static final int FILL_OVAL = 10;
+    private static final int DRAW_ARC = 11;
+    private static final int FILL_ARC = 12;
+    private static final int DRAW_POLYLINE = 13;
+    private static final int DRAW_POLYGON = 14;
+    private static final int FILL_POLYGON = 15;
+    private static final int DRAW_STRING = 16;
+    private static final int DRAW_TEXT = 17;
+    private static final int SET_COLOR = 18;
+    private static final int SET_FONT = 19;
+    private static final int SET_CLIP = 20;
+    private static final int SET_XOR = 21;
+
+    //answers font metrics for the recording graphics and gives its default color and font
+    private static final Graphics SCRATCH = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+    private int[] kinds;
+    //first parameter of every command in params
+    private int[] starts;
+    //the image, string, polygon points or state value of every command, and the background color of images
+    private Object[] objects;
+    private Color[] backgrounds;
+    private int[] params;
+    private int size;
+    private int paramCount;
+
+    //the state of the last recorded commands, null means the state of the graphics that replays the frame
+    private Color color;
+    private Font font;
+    private Rectangle clip;
+    private Color xorColor;
+
+    MarioRenderSnapshot() {
+        this.kinds = new int[64];
+        this.starts = new int[64];
+        this.objects = new Object[64];
+        this.backgrounds = new Color[64];
+        this.params = new int[4 * 64];
+    }
+
+    /**
+     * Record a new frame, the commands of the previous frame are dropped
+     *
+     * @param world  the world to paint
+     * @param render the component that paints the hud
+     */
+    void capture(MarioWorld world, MarioRender render) {
+        Arrays.fill(this.objects, 0, this.size, null);
+        Arrays.fill(this.backgrounds, 0, this.size, null);
+        this.size = 0;
+        this.paramCount = 0;
+        this.color = null;
+        this.font = null;
+        this.clip = null;
+        this.xorColor = null;
+        Recorder recorder = new Recorder();
+        render.drawFrame(world, recorder);
+        recorder.dispose();
+    }
+
+    /**
+     * Draw the recorded commands
+     *
+     * @param g the graphics that receives the frame, its state is not changed
+     */
+    void replay(Graphics g) {
+        Graphics rg = g.create();
+        Color originalColor = rg.getColor();
+        Font originalFont = rg.getFont();
+        Shape originalClip = rg.getClip();
+        for (int i = 0; i < this.size; i++) {
+            int[] p = this.params;
+            int s = this.starts[i];
+            Object object = this.objects[i];
+            switch (this.kinds[i]) {
+                case IMAGE:
+                    rg.drawImage((Image) object, p[s], p[s + 1], this.backgrounds[i], null);
+                    break;
+                case IMAGE_SCALED:
+                    rg.drawImage((Image) object, p[s], p[s + 1], p[s + 2], p[s + 3], this.backgrounds[i], null);
+                    break;
+                case IMAGE_AREA:
+                    rg.drawImage((Image) object, p[s], p[s + 1], p[s + 2], p[s + 3],
+                            p[s + 4], p[s + 5], p[s + 6], p[s + 7], this.backgrounds[i], null);
+                    break;
+                case FILL_RECT:
+                    rg.fillRect(p[s], p[s + 1], p[s + 2], p[s + 3]);
+                    break;
+                case CLEAR_RECT:
+                    rg.clearRect(p[s], p[s + 1], p[s + 2], p[s + 3]);
+                    break;
+                case DRAW_LINE:
+                    rg.drawLine(p[s], p[s + 1], p[s + 2], p[s + 3]);
+                    break;
+                case COPY_AREA:
+                    rg.copyArea(p[s], p[s + 1], p[s + 2], p[s + 3], p[s + 4], p[s + 5]);
+                    break;
+                case DRAW_ROUND_RECT:
+                    rg.drawRoundRect(p[s], p[s + 1], p[s + 2], p[s + 3], p[s + 4], p[s + 5]);
+                    break;
+                case FILL_ROUND_RECT:
+                    rg.fillRoundRect(p[s], p[s + 1], p[s + 2], p[s + 3], p[s + 4], p[s + 5]);
+                    break;
+                case DRAW_OVAL:
+                    rg.drawOval(p[s], p[s + 1], p[s + 2], p[s + 3]);
+                    break;
+                case FILL_OVAL:
+                    rg.fillOval(p[s], p[s + 1], p[s + 2], p[s + 3]);
+                    break;
+                case DRAW_ARC:
+                    rg.drawArc(p[s], p[s + 1], p[s + 2], p[s + 3], p[s + 4], p[s + 5]);
+                    break;
+                case FILL_ARC:
+                    rg.fillArc(p[s], p[s + 1], p[s + 2], p[s + 3], p[s + 4], p[s + 5]);
+                    break;
+                case DRAW_POLYLINE:
+                    rg.drawPolyline(((int[][]) object)[0], ((int[][]) object)[1], p[s]);
+                    break;
+                case DRAW_POLYGON:
+                    rg.drawPolygon(((int[][]) object)[0], ((int[][]) object)[1], p[s]);
+                    break;
+                case FILL_POLYGON:
+                    rg.fillPolygon(((int[][]) object)[0], ((int[][]) object)[1], p[s]);
+                    break;
+                case DRAW_STRING:
+                    rg.drawString((String) object, p[s], p[s + 1]);
+                    break;
+                case DRAW_TEXT:
+                    rg.drawString(((AttributedString) object).getIterator(), p[s], p[s + 1]);
+                    break;
+                case SET_COLOR:
+                    rg.setColor(object == null ? originalColor : (Color) object);
+                    break;
+                case SET_FONT:
+                    rg.setFont(object == null ? originalFont : (Font) object);
+                    break;
+                case SET_CLIP:
+                    rg.setClip(object == null ? originalClip : (Rectangle) object);
+                    break;
+                case SET_XOR:
+                    if (object == null) {
+                        rg.setPaintMode();
+                    } else {
+                        rg.setXORMode((Color) object);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown draw command: " + this.kinds[i]);
+            }
+        }
+        rg.dispose();
+    }
+
+    int getNumberOfCommands() {
+        return this.size;
+    }
+
+    private void add(int kind, Object object, Color background, int numberOfParams) {
+        if (this.size == this.kinds.length) {
+            int length = this.size * 2;
+            this.kinds = Arrays.copyOf(this.kinds, length);
+            this.starts = Arrays.copyOf(this.starts, length);
+            this.objects = Arrays.copyOf(this.objects, length);
+            this.backgrounds = Arrays.copyOf(this.backgrounds, length);
+        }
+        if (this.paramCount + numberOfParams > this.params.length) {
+            this.params = Arrays.copyOf(this.params, Math.max(this.params.length * 2, this.paramCount + numberOfParams));
+        }
+        this.kinds[this.size] = kind;
+        this.starts[this.size] = this.paramCount;
+        this.objects[this.size] = object;
+        this.backgrounds[this.size] = background;
+        this.size += 1;
+    }
+
+    private void push(int value) {
+        this.params[this.paramCount++] = value;
+    }
+
+    /**
+     * The graphics that the frame is painted with. Graphics created from it record into the same snapshot
+     * with their own state.
+     */
+    private class Recorder extends Graphics {
+        private int xOffset;
+        private int yOffset;
+        private Color color;
+        private Font font;
+        //in frame coordinates
+        private Rectangle clip;
+        private Color xorColor;
+
+        //record the state of this graphics if the last command used another one
+        private void sync() {
+            MarioRenderSnapshot snapshot = MarioRenderSnapshot.this;
+            if (!Objects.equals(this.color, snapshot.color)) {
+                snapshot.add(SET_COLOR, this.color, null, 0);
+                snapshot.color = this.color;
+            }
+            if (!Objects.equals(this.font, snapshot.font)) {
+                snapshot.add(SET_FONT, this.font, null, 0);
+                snapshot.font = this.font;
+            }
+            if (!Objects.equals(this.clip, snapshot.clip)) {
+                snapshot.add(SET_CLIP, this.clip, null, 0);
+                snapshot.clip = this.clip;
+            }
+            if (!Objects.equals(this.xorColor, snapshot.xorColor)) {
+                snapshot.add(SET_XOR, this.xorColor, null, 0);
+                snapshot.xorColor = this.xorColor;
+            }
+        }
+
+        private void record(int kind, Object object, Color background, int x, int y) {
+            this.sync();
+            add(kind, object, background, 2);
+            push(x + this.xOffset);
+            push(y + this.yOffset);
+        }
+
+        private void record(int kind, Object object, Color background, int x, int y, int width, int height) {
+            this.sync();
+            add(kind, object, background, 4);
+            push(x + this.xOffset);
+            push(y + this.yOffset);
+            push(width);
+            push(height);
+        }
+
+        private void record(int kind, int x, int y, int width, int height, int a, int b) {
+            this.sync();
+            add(kind, null, null, 6);
+            push(x + this.xOffset);
+            push(y + this.yOffset);
+            push(width);
+            push(height);
+            push(a);
+            push(b);
+        }
+
+        private void recordPolygon(int kind, int[] xPoints, int[] yPoints, int nPoints) {
+            int[][] points = new int[][]{Arrays.copyOf(xPoints, nPoints), Arrays.copyOf(yPoints, nPoints)};
+            for (int i = 0; i < nPoints; i++) {
+                points[0][i] += this.xOffset;
+                points[1][i] += this.yOffset;
+            }
+            this.sync();
+            add(kind, points, null, 1);
+            push(nPoints);
+        }
+
+        @Override
+        public Graphics create() {
+            Recorder recorder = new Recorder();
+            recorder.xOffset = this.xOffset;
+            recorder.yOffset = this.yOffset;
+            recorder.color = this.color;
+            recorder.font = this.font;
+            recorder.clip = this.clip;
+            recorder.xorColor = this.xorColor;
+            return recorder;
+        }
+
+        @Override
+        public void translate(int x, int y) {
+            this.xOffset += x;
+            this.yOffset += y;
+        }
+
+        @Override
+        public Color getColor() {
+            return this.color == null ? SCRATCH.getColor() : this.color;
+        }
+
+        @Override
+        public void setColor(Color c) {
+            if (c != null) {
+                this.color = c;
+            }
+        }
+
+        @Override
+        public void setPaintMode() {
+            this.xorColor = null;
+        }
+
+        @Override
+        public void setXORMode(Color c1) {
+            this.xorColor = c1;
+        }
+
+        @Override
+        public Font getFont() {
+            return this.font == null ? SCRATCH.getFont() : this.font;
+        }
+
+        @Override
+        public void setFont(Font font) {
+            if (font != null) {
+                this.font = font;
+            }
+        }
+
+        @Override
+        public FontMetrics getFontMetrics(Font f) {
+            return SCRATCH.getFontMetrics(f);
+        }
+
+        @Override
+        public Rectangle getClipBounds() {
+            if (this.clip == null) {
+                return null;
+            }
+            return new Rectangle(this.clip.x - this.xOffset, this.clip.y - this.yOffset, this.clip.width, this.clip.height);
+        }
+
+        @Override
+        public void clipRect(int x, int y, int width, int height) {
+            Rectangle rectangle = new Rectangle(x + this.xOffset, y + this.yOffset, width, height);
+            this.clip = this.clip == null ? rectangle : this.clip.intersection(rectangle);
+        }
+
+        @Override
+        public void setClip(int x, int y, int width, int height) {
+            this.clip = new Rectangle(x + this.xOffset, y + this.yOffset, width, height);
+        }
+
+        @Override
+        public Shape getClip() {
+            return this.getClipBounds();
+        }
+
+        @Override
+        public void setClip(Shape clip) {
+            if (clip == null) {
+                this.clip = null;
+            } else {
+                Rectangle bounds = clip.getBounds();
+                this.setClip(bounds.x, bounds.y, bounds.width, bounds.height);
+            }
+        }
+
+        @Override
+        public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+            this.record(COPY_AREA, x, y, width, height, dx, dy);
+        }
+
+        @Override
+        public void drawLine(int x1, int y1, int x2, int y2) {
+            this.record(DRAW_LINE, null, null, x1, y1, x2 + this.xOffset, y2 + this.yOffset);
+        }
+
+        @Override
+        public void fillRect(int x, int y, int width, int height) {
+            this.record(FILL_RECT, null, null, x, y, width, height);
+        }
+
+        @Override
+        public void clearRect(int x, int y, int width, int height) {
+            this.record(CLEAR_RECT, null, null, x, y, width, height);
+        }
+
+        @Override
+        public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+            this.record(DRAW_ROUND_RECT, x, y, width, height, arcWidth, arcHeight);
+        }
+
+        @Override
+        public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+            this.record(FILL_ROUND_RECT, x, y, width, height, arcWidth, arcHeight);
+        }
+
+        @Override
+        public void drawOval(int x, int y, int width, int height) {
+            this.record(DRAW_OVAL, null, null, x, y, width, height);
+        }
+
+        @Override
+        public void fillOval(int x, int y, int width, int height) {
+            this.record(FILL_OVAL, null, null, x, y, width, height);
+        }
+
+        @Override
+        public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+            this.record(DRAW_ARC, x, y, width, height, startAngle, arcAngle);
+        }
+
+        @Override
+        public void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+            this.record(FILL_ARC, x, y, width, height, startAngle, arcAngle);
+        }
+
+        @Override
+        public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
+            this.recordPolygon(DRAW_POLYLINE, xPoints, yPoints, nPoints);
+        }
+
+        @Override
+        public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+            this.recordPolygon(DRAW_POLYGON, xPoints, yPoints, nPoints);
+        }
+
+        @Override
+        public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+            this.recordPolygon(FILL_POLYGON, xPoints, yPoints, nPoints);
+        }
+
+        @Override
+        public void drawString(String str, int x, int y) {
+            this.record(DRAW_STRING, str, null, x, y);
+        }
+
+        @Override
+        public void drawString(AttributedCharacterIterator iterator, int x, int y) {
+            //the iterator can change after the call, the text is copied
+            this.record(DRAW_TEXT, new AttributedString(iterator), null, x, y);
+        }
+
+        @Override
+        public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+            this.record(IMAGE, img, null, x, y);
+            return true;
+        }
+
+        @Override
+        public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+            this.record(IMAGE_SCALED, img, null, x, y, width, height);
+            return true;
+        }
+
+        @Override
+        public boolean drawImage(Image img, int x, int y, Color bgcolor, ImageObserver observer) {
+            this.record(IMAGE, img, bgcolor, x, y);
+            return true;
+        }
+
+        @Override
+        public boolean drawImage(Image img, int x, int y, int width, int height, Color bgcolor, ImageObserver observer) {
+            this.record(IMAGE_SCALED, img, bgcolor, x, y, width, height);
+            return true;
+        }
+
+        @Override
+        public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2,
+                                 ImageObserver observer) {
+            return this.drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null, observer);
+        }
+
+        @Override
+        public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2,
+                                 Color bgcolor, ImageObserver observer) {
+            this.sync();
+            add(IMAGE_AREA, img, bgcolor, 8);
+            push(dx1 + this.xOffset);
+            push(dy1 + this.yOffset);
+            push(dx2 + this.xOffset);
+            push(dy2 + this.yOffset);
+            push(sx1);
+            push(sy1);
+            push(sx2);
+            push(sy2);
+            return true;
+        }
+
+        @Override
+        public void dispose() {
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package engine.core;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paints the game on its own thread so painting never slows down the simulation or the agent. After every tick
+ * the game records the frame with the normal render code as a short list of draw commands (see
+ * MarioRenderSnapshot) and the render thread draws the newest one at display rate, snapshots that are replaced
+ * before they are drawn are dropped. The frames look the same as the ones painted without the render thread.
+ */
+public class MarioRenderThread implements Runnable {
+    private final MarioRender render;
+    private final BufferedImage image;
+    private final long framePeriod;
+    private final AtomicReference<MarioRenderSnapshot> latest;
+    //a snapshot that the render thread has drawn and that can be recorded again
+    private final AtomicReference<MarioRenderSnapshot> spare;
+    private MarioRenderSnapshot recording;
+    private final Thread thread;
+    private volatile boolean running;
+
+    private volatile long framesDrawn;
+    private volatile long framesDropped;
+
+    /**
+     * Create and start a render thread
+     *
+     * @param render the component that the frames are painted on
+     * @param fps    the maximum number of frames per second that are painted, 0 paints every snapshot as soon as possible
+     */
+    public MarioRenderThread(MarioRender render, int fps) {
+        this.render = render;
+        this.image = new BufferedImage(MarioGame.width, MarioGame.height, BufferedImage.TYPE_INT_RGB);
+        this.framePeriod = fps > 0 ? 1000000000L / fps : 0;
+        this.latest = new AtomicReference<>();
+        this.spare = new AtomicReference<>();
+        this.recording = new MarioRenderSnapshot();
+        this.running = true;
+        this.thread = new Thread(this, "Mario Render");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Record the current frame of a world and publish it, must be called from the thread that updates the world
+     *
+     * @param world the world to paint, it is not kept after the call returns
+     */
+    public void publish(MarioWorld world) {
+        this.recording.capture(world, this.render);
+        MarioRenderSnapshot replaced = this.latest.getAndSet(this.recording);
+        if (replaced != null) {
+            this.framesDropped += 1;
+            this.recording = replaced;
+        } else {
+            this.recording = this.spare.getAndSet(null);
+            if (this.recording == null) {
+                this.recording = new MarioRenderSnapshot();
+            }
+        }
+        LockSupport.unpark(this.thread);
+    }
+
+    /**
+     * Draw the last published snapshot and stop the render thread
+     */
+    public void stop() {
+        this.running = false;
+        LockSupport.unpark(this.thread);
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getFramesDrawn() {
+        return this.framesDrawn;
+    }
+
+    public long getFramesDropped() {
+        return this.framesDropped;
+    }
+
+    @Override
+    public void run() {
+        long nextFrame = System.nanoTime();
+        while (true) {
+            boolean stopping = !this.running;
+            MarioRenderSnapshot snapshot = this.latest.getAndSet(null);
+            if (snapshot != null) {
+                Graphics g = this.render.getGraphics();
+                if (g != null) {
+                    Graphics og = this.image.getGraphics();
+                    snapshot.replay(og);
+                    og.dispose();
+                    this.render.present(this.image, g);
+                    g.dispose();
+                }
+                this.spare.set(snapshot);
+                this.framesDrawn += 1;
+                //wait for the next display frame, newer snapshots replace the waiting one
+                nextFrame = Math.max(nextFrame + this.framePeriod, System.nanoTime());
+                long wait = nextFrame - System.nanoTime();
+                while (wait > 0 && this.running) {
+                    LockSupport.parkNanos(this, wait);
+                    wait = nextFrame - System.nanoTime();
+                }
+            } else if (!stopping) {
+                LockSupport.park(this);
+            }
+            if (stopping && this.latest.get() == null) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package engine.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import engine.helper.EventType;
+import engine.helper.GameStatus;
+import engine.helper.MarioActions;
+
+/**
+ * A recorded game that can be saved in a compact binary form and played again. The game is deterministic so
+ * the replay only stores a hash of the level, the starting mario state, the timer, the kill events of a
+ * punishing game and the actions of every tick packed in 5 bits, playing it on the same level gives the same
+ * MarioResult as the recorded game.
+ */
+public class MarioReplay {
+    private static final int MAGIC = 0x4D52504C;
+    private static final int VERSION = 2;
+    private static final int BITS_PER_TICK = 5;
+
+    private long levelHash;
+    private int timer;
+    private int marioState;
+    private MarioEvent[] killEvents;
+    private int ticks;
+    private byte[] actions;
+
+    private MarioReplay(long levelHash, int timer, int marioState, MarioEvent[] killEvents, int ticks, byte[] actions) {
+        this.levelHash = levelHash;
+        this.timer = timer;
+        this.marioState = marioState;
+        if (killEvents != null && killEvents.length > 255) {
+            throw new IllegalArgumentException("A replay can store at most 255 kill events: " + killEvents.length);
+        }
+        this.killEvents = killEvents == null || killEvents.length == 0 ? null : killEvents.clone();
+        this.ticks = ticks;
+        this.actions = actions;
+    }
+
+    /**
+     * Record a played game
+     *
+     * @param level       the level string that the game was played on
+     * @param timer       the timer that the game was started with
+     * @param marioState  the initial state of mario. 0 small mario, 1 large mario, and 2 fire mario.
+     * @param agentEvents the agent events of the game result
+     */
+    public MarioReplay(String level, int timer, int marioState, ArrayList<MarioAgentEvent> agentEvents) {
+        this(level, timer, marioState, null, agentEvents);
+    }
+
+    /**
+     * Record a game that was played with kill events (MarioGame(MarioEvent[]))
+     *
+     * @param level       the level string that the game was played on
+     * @param timer       the timer that the game was started with
+     * @param marioState  the initial state of mario. 0 small mario, 1 large mario, and 2 fire mario.
+     * @param killEvents  the events that made mario lose in that game, null if there were none
+     * @param agentEvents the agent events of the game result
+     */
+    public MarioReplay(String level, int timer, int marioState, MarioEvent[] killEvents, ArrayList<MarioAgentEvent> agentEvents) {
+        this(getLevelHash(level), timer, marioState, killEvents, agentEvents.size(),
+                new byte[(agentEvents.size() * BITS_PER_TICK + 7) / 8]);
+        for (int i = 0; i < this.ticks; i++) {
+            int mask = MarioActions.getMask(agentEvents.get(i).getActions());
+            for (int b = 0; b < BITS_PER_TICK; b++) {
+                if ((mask & (1 << b)) != 0) {
+                    int bit = i * BITS_PER_TICK + b;
+                    this.actions[bit >>> 3] |= 1 << (bit & 7);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the hash that identifies a level in a replay
+     *
+     * @param level the level string
+     * @return a 64 bit hash of the level string
+     */
+    public static long getLevelHash(String level) {
+        long hash = level.length();
+        for (int i = 0; i < level.length(); i++) {
+            hash = MarioWorld.mixHash(hash + level.charAt(i));
+        }
+        return hash;
+    }
+
+    public long getLevelHash() {
+        return this.levelHash;
+    }
+
+    public int getTimer() {
+        return this.timer;
+    }
+
+    public int getMarioState() {
+        return this.marioState;
+    }
+
+    /**
+     * Get the kill events that the game was played with, only their type and parameter are kept
+     *
+     * @return the kill events or null if the game was not played with kill events
+     */
+    public MarioEvent[] getKillEvents() {
+        return this.killEvents == null ? null : this.killEvents.clone();
+    }
+
+    public int getNumberOfTicks() {
+        return this.ticks;
+    }
+
+    /**
+     * Get the actions of a certain tick
+     *
+     * @param tick the tick index starting from 0
+     * @return the action mask of that tick (same as MarioActions.getMask)
+     */
+    public int getMask(int tick) {
+        int mask = 0;
+        for (int b = 0; b < BITS_PER_TICK; b++) {
+            int bit = tick * BITS_PER_TICK + b;
+            if ((this.actions[bit >>> 3] & (1 << (bit & 7))) != 0) {
+                mask |= 1 << b;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Write the replay in its binary form
+     *
+     * @param out the output that receives the replay
+     * @throws IOException if the output fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(this.levelHash);
+        out.writeByte(this.marioState);
+        out.writeInt(this.timer);
+        int numKillEvents = this.killEvents == null ? 0 : this.killEvents.length;
+        out.writeByte(numKillEvents);
+        for (int i = 0; i < numKillEvents; i++) {
+            out.writeByte(this.killEvents[i].getEventType());
+            out.writeInt(this.killEvents[i].getEventParam());
+        }
+        out.writeInt(this.ticks);
+        out.write(this.actions);
+    }
+
+    /**
+     * Read a replay that was written using write
+     *
+     * @param in the input that contains the replay
+     * @return the replay
+     * @throws IOException if the input fails or doesn't contain a replay
+     */
+    public static MarioReplay read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a mario replay");
+        }
+        int version = in.readUnsignedByte();
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported mario replay version: " + version);
+        }
+        long levelHash = in.readLong();
+        int marioState = in.readUnsignedByte();
+        int timer = in.readInt();
+        //version 1 replays were recorded without kill events
+        MarioEvent[] killEvents = new MarioEvent[version == 1 ? 0 : in.readUnsignedByte()];
+        for (int i = 0; i < killEvents.length; i++) {
+            int type = in.readUnsignedByte();
+            int param = in.readInt();
+            killEvents[i] = new MarioEvent(getEventType(type), param);
+        }
+        int ticks = in.readInt();
+        if (ticks < 0) {
+            throw new IOException("Corrupted mario replay, number of ticks: " + ticks);
+        }
+        byte[] actions = new byte[(int) (((long) ticks * BITS_PER_TICK + 7) / 8)];
+        in.readFully(actions);
+        return new MarioReplay(levelHash, timer, marioState, killEvents, ticks, actions);
+    }
+
+    private static EventType getEventType(int value) throws IOException {
+        for (EventType type : EventType.values()) {
+            if (type.getValue() == value) {
+                return type;
+            }
+        }
+        throw new IOException("Corrupted mario replay, kill event type: " + value);
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(23 + 5 * (this.killEvents == null ? 0 : this.killEvents.length) + this.actions.length);
+        try {
+            this.write(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory failed", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static MarioReplay fromBytes(byte[] bytes) throws IOException {
+        return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    private void checkLevel(String level) {
+        if (getLevelHash(level) != this.levelHash) {
+            throw new IllegalArgumentException("The replay was recorded on a different level");
+        }
+    }
+
+    /**
+     * Simulate the replay without visuals as fast as possible
+     *
+     * @param level the level string that the replay was recorded on
+     * @return the same result as the recorded game, without agent latency statistics
+     */
+    public MarioResult play(String level) {
+        this.checkLevel(level);
+        MarioWorld world = new MarioWorld(this.killEvents);
+        world.visuals = false;
+        world.initializeLevel(level, 1000 * this.timer);
+        world.mario.isLarge = this.marioState > 0;
+        world.mario.isFire = this.marioState > 1;
+        world.update(new boolean[MarioActions.numberOfActions()]);
+
+        ArrayList<MarioEvent> gameEvents = new ArrayList<>();
+        ArrayList<MarioAgentEvent> agentEvents = new ArrayList<>(this.ticks);
+        for (int i = 0; i < this.ticks; i++) {
+            if (world.gameStatus != GameStatus.RUNNING) {
+                throw new IllegalStateException("The game ended after " + i + " of " + this.ticks + " replay ticks");
+            }
+            boolean[] actions = MarioActions.getActions(this.getMask(i));
+            world.update(actions);
+            gameEvents.addAll(world.lastFrameEvents);
+            agentEvents.add(new MarioAgentEvent(actions, world.mario.x, world.mario.y,
+                    (world.mario.isLarge ? 1 : 0) + (world.mario.isFire ? 1 : 0), world.mario.onGround, world.currentTick));
+        }
+        if (world.gameStatus == GameStatus.RUNNING) {
+            throw new IllegalStateException("The game is still running at the end of the replay");
+        }
+        return new MarioResult(world, gameEvents, agentEvents);
+    }
+
+    /**
+     * Show the replay in a window
+     *
+     * @param level the level string that the replay was recorded on
+     * @param fps   the number of frames per second that the replay is shown at
+     * @param scale the screen scale, that scale value is multiplied by the actual width and height
+     * @return the same result as the recorded game, without agent latency statistics
+     */
+    public MarioResult play(String level, int fps, float scale) {
+        this.checkLevel(level);
+        MarioAgent agent = new MarioAgent() {
+            private int tick = 0;
+
+            @Override
+            public void initialize(MarioForwardModel model, MarioTimer timer) {
+            }
+
+            @Override
+            public boolean[] getActions(MarioForwardModel model, MarioTimer timer) {
+                if (this.tick >= MarioReplay.this.ticks) {
+                    throw new IllegalStateException("The game is still running at the end of the replay");
+                }
+                return MarioActions.getActions(MarioReplay.this.getMask(this.tick++));
+            }
+
+            @Override
+            public String getAgentName() {
+                return "MarioReplay";
+            }
+        };
+        return new MarioGame(this.killEvents).runGame(agent, level, this.timer, this.marioState, true, fps, scale);
+    }
+}
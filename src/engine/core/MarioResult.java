@@ -2,14 +2,18 @@ package engine.core;
 
 import java.util.ArrayList;
 
-import engine.helper.EventType;
 import engine.helper.GameStatus;
-import engine.helper.SpriteType;
 
 public class MarioResult {
     private MarioWorld world;
     private ArrayList<MarioEvent> gameEvents;
     private ArrayList<MarioAgentEvent> agentEvents;
+    private MarioLatencyHistogram agentLatency;
+    private int agentOverruns;
+    private MarioLatencyHistogram frameJitter;
+    private int missedFrames;
+    private int skippedFrames;
+    private MarioResultSummary summary;
 
     /**
      * Create a mario result object
@@ -18,9 +22,40 @@ public class MarioResult {
      * @param all   the events that happens in the playthrough of the game
      */
     public MarioResult(MarioWorld world, ArrayList<MarioEvent> gameEvents, ArrayList<MarioAgentEvent> agentEvents) {
+        this(world, gameEvents, agentEvents, new MarioLatencyHistogram(), 0);
+    }
+
+    /**
+     * Create a mario result object
+     *
+     * @param world         the current level world that is being used. This class uses the world object to get cleaner statistics.
+     * @param gameEvents    the events that happens in the playthrough of the game
+     * @param agentEvents   the actions of the agent every tick
+     * @param agentLatency  the time the agent took to return its actions every tick
+     * @param agentOverruns the number of ticks where the agent took more than the allowed time
+     */
+    public MarioResult(MarioWorld world, ArrayList<MarioEvent> gameEvents, ArrayList<MarioAgentEvent> agentEvents,
+                       MarioLatencyHistogram agentLatency, int agentOverruns) {
         this.world = world;
         this.gameEvents = gameEvents;
         this.agentEvents = agentEvents;
+        this.agentLatency = agentLatency;
+        this.agentOverruns = agentOverruns;
+        this.frameJitter = new MarioLatencyHistogram();
+    }
+
+    /**
+     * Set the frame pacing statistics of a game that ran at a fixed number of frames per second
+     *
+     * @param frameJitter   how late every tick started relative to its deadline
+     * @param missedFrames  the number of whole frame periods that passed without a tick starting
+     * @param skippedFrames the number of ticks that were not painted to catch up
+     */
+    void setFramePacing(MarioLatencyHistogram frameJitter, int missedFrames, int skippedFrames) {
+        this.frameJitter = frameJitter;
+        this.missedFrames = missedFrames;
+        this.skippedFrames = skippedFrames;
+        this.summary = null;
     }
 
     /**
@@ -66,6 +101,19 @@ public class MarioResult {
         return value;
     }
 
+    /**
+     * Get the statistics of the game in a compact form that doesn't keep the world or the events, the summary is
+     * computed in one pass over the events the first time it is requested and the event statistics getters use it
+     *
+     * @return the summary of the game
+     */
+    public MarioResultSummary getSummary() {
+        if (this.summary == null) {
+            this.summary = new MarioResultSummary(this);
+        }
+        return this.summary;
+    }
+
     /**
      * Get all the game events that happen in the game
      *
@@ -90,14 +138,7 @@ public class MarioResult {
      * @return number of enemies killed in the game
      */
     public int getKillsTotal() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.STOMP_KILL.getValue() || e.getEventType() == EventType.FIRE_KILL.getValue() ||
-                    e.getEventType() == EventType.FALL_KILL.getValue() || e.getEventType() == EventType.SHELL_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.getSummary().getKillsTotal();
     }
 
     /**
@@ -106,13 +147,7 @@ public class MarioResult {
      * @return number of enemies killed by fireballs
      */
     public int getKillsByFire() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.FIRE_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.getSummary().getKillsByFire();
     }
 
     /**
@@ -121,13 +156,7 @@ public class MarioResult {
      * @return number of enemies killed by stomping
      */
     public int getKillsByStomp() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.STOMP_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.getSummary().getKillsByStomp();
     }
 
     /**
@@ -136,13 +165,7 @@ public class MarioResult {
      * @return number of enemies killed by a koopa shell
      */
     public int getKillsByShell() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.SHELL_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.getSummary().getKillsByShell();
     }
 
     /**
@@ -152,15 +175,7 @@ public class MarioResult {
      * @return number of a certain type of enemy that has been killed by Mario
      */
     public int getMarioNumKills(int enemyType) {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if ((e.getEventType() == EventType.SHELL_KILL.getValue()
-                    || e.getEventType() == EventType.FIRE_KILL.getValue()
-                    || e.getEventType() == EventType.STOMP_KILL.getValue()) && e.getEventParam() == enemyType) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.getSummary().getMarioNumKills(enemyType);
     }
 
     /**
@@ -169,13 +184,7 @@ public class MarioResult {
      * @return number of times mario got hurt
      */
     public int getMarioNumHurts() {
-        int hurt = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.HURT.getValue()) {
-                hurt += 1;
-            }
-        }
-        return hurt;
+        return this.getSummary().getMarioNumHurts();
     }
 
     /**
@@ -184,13 +193,7 @@ public class MarioResult {
      * @return number of question mark block mario hit
      */
     public int getNumBumpQuestionBlock() {
-        int bump = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.BUMP.getValue() && e.getEventParam() == MarioForwardModel.OBS_QUESTION_BLOCK) {
-                bump += 1;
-            }
-        }
-        return bump;
+        return this.getSummary().getNumBumpQuestionBlock();
     }
 
     /**
@@ -199,13 +202,7 @@ public class MarioResult {
      * @return number of brick block mario hit
      */
     public int getNumBumpBrick() {
-        int bump = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.BUMP.getValue() && e.getEventParam() == MarioForwardModel.OBS_BRICK) {
-                bump += 1;
-            }
-        }
-        return bump;
+        return this.getSummary().getNumBumpBrick();
     }
 
     /**
@@ -214,13 +211,7 @@ public class MarioResult {
      * @return the number of enemies that fell from the game screen
      */
     public int getKillsByFall() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.FALL_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.getSummary().getKillsByFall();
     }
 
     /**
@@ -229,13 +220,7 @@ public class MarioResult {
      * @return the number of jumps performed by mario during the game
      */
     public int getNumJumps() {
-        int jumps = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.JUMP.getValue()) {
-                jumps += 1;
-            }
-        }
-        return jumps;
+        return this.getSummary().getNumJumps();
     }
 
     /**
@@ -244,19 +229,7 @@ public class MarioResult {
      * @return the maximum x distance traversed mario
      */
     public float getMaxXJump() {
-        float maxXJump = 0;
-        float startX = -100;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.JUMP.getValue()) {
-                startX = e.getMarioX();
-            }
-            if (e.getEventType() == EventType.LAND.getValue()) {
-                if (Math.abs(e.getMarioX() - startX) > maxXJump) {
-                    maxXJump = Math.abs(e.getMarioX() - startX);
-                }
-            }
-        }
-        return maxXJump;
+        return this.getSummary().getMaxXJump();
     }
 
     /**
@@ -265,19 +238,7 @@ public class MarioResult {
      * @return the maximum amount of frames mario is being in the air
      */
     public int getMaxJumpAirTime() {
-        int maxAirJump = 0;
-        int startTime = -100;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.JUMP.getValue()) {
-                startTime = e.getTime();
-            }
-            if (e.getEventType() == EventType.LAND.getValue()) {
-                if (e.getTime() - startTime > maxAirJump) {
-                    maxAirJump = e.getTime() - startTime;
-                }
-            }
-        }
-        return maxAirJump;
+        return this.getSummary().getMaxJumpAirTime();
     }
 
     /**
@@ -304,13 +265,7 @@ public class MarioResult {
      * @return the number of collected mushrooms by mario
      */
     public int getNumCollectedMushrooms() {
-        int collect = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.COLLECT.getValue() && e.getEventParam() == SpriteType.MUSHROOM.getValue()) {
-                collect += 1;
-            }
-        }
-        return collect;
+        return this.getSummary().getNumCollectedMushrooms();
     }
 
     /**
@@ -319,13 +274,7 @@ public class MarioResult {
      * @return the number of collected fire flowers by mario
      */
     public int getNumCollectedFireflower() {
-        int collect = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.COLLECT.getValue() && e.getEventParam() == SpriteType.FIRE_FLOWER.getValue()) {
-                collect += 1;
-            }
-        }
-        return collect;
+        return this.getSummary().getNumCollectedFireflower();
     }
 
     /**
@@ -334,13 +283,7 @@ public class MarioResult {
      * @return the number of collected coins by mario
      */
     public int getNumCollectedTileCoins() {
-        int collect = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.COLLECT.getValue() && e.getEventParam() == MarioForwardModel.OBS_COIN) {
-                collect += 1;
-            }
-        }
-        return collect;
+        return this.getSummary().getNumCollectedTileCoins();
     }
 
     /**
@@ -349,13 +292,54 @@ public class MarioResult {
      * @return the number of destroyed bricks by large or fire mario
      */
     public int getNumDestroyedBricks() {
-        int bricks = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.BUMP.getValue() &&
-                    e.getEventParam() == MarioForwardModel.OBS_BRICK && e.getMarioState() > 0) {
-                bricks += 1;
-            }
-        }
-        return bricks;
+        return this.getSummary().getNumDestroyedBricks();
+    }
+
+    /**
+     * Get the histogram of the time the agent took to return its actions, one value for every call to the
+     * agent. When the deadline is enforced a call that missed the deadline is recorded with its full time once it
+     * returns, and the ticks that skipped the agent because the previous call was still running are not recorded.
+     *
+     * @return the agent latency histogram in nanoseconds
+     */
+    public MarioLatencyHistogram getAgentLatency() {
+        return this.agentLatency;
+    }
+
+    /**
+     * Get the number of ticks where the agent took more than the maximum time plus the grace time
+     * or missed the deadline and the previous actions were used instead
+     *
+     * @return number of ticks where the agent was too slow
+     */
+    public int getNumAgentOverruns() {
+        return this.agentOverruns;
+    }
+
+    /**
+     * Get how late every tick started relative to its deadline, it is empty when the game didn't run at a fixed frame rate
+     *
+     * @return the frame jitter histogram in nanoseconds
+     */
+    public MarioLatencyHistogram getFrameJitter() {
+        return this.frameJitter;
+    }
+
+    /**
+     * Get the number of whole frame periods that passed without a tick starting
+     *
+     * @return number of missed frame deadlines
+     */
+    public int getNumMissedFrames() {
+        return this.missedFrames;
+    }
+
+    /**
+     * Get the number of ticks that were not painted because the game was behind schedule
+     *
+     * @return number of skipped frames
+     */
+    public int getNumSkippedFrames() {
+        return this.skippedFrames;
     }
 }
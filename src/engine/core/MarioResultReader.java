@@ -0,0 +1,207 @@
+package engine.core;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the results saved by MarioResultWriter. Only the requested columns are read and the rows are streamed,
+ * so aggregating over a few columns needs memory for one row only. Numbers are returned as doubles and the
+ * agent and level names as strings, the status column holds the GameStatus ordinal or -1 for failed games.
+ * Failed games have no statistics, mean and meanBy leave them out.
+ */
+public class MarioResultReader {
+    private Path folder;
+    private String[] names;
+    private char[] types;
+
+    /**
+     * Open the results in a folder
+     *
+     * @param folder the folder that was written by a MarioResultWriter
+     * @throws IOException if the folder doesn't contain results
+     */
+    public MarioResultReader(String folder) throws IOException {
+        this.folder = Paths.get(folder);
+        List<String> header = Files.readAllLines(this.folder.resolve(MarioResultWriter.COLUMNS_FILE));
+        this.names = new String[header.size()];
+        this.types = new char[header.size()];
+        for (int i = 0; i < header.size(); i++) {
+            String[] parts = header.get(i).split(" ");
+            this.names[i] = parts[0];
+            this.types[i] = parts[1].charAt(0);
+        }
+    }
+
+    public String[] getColumnNames() {
+        return this.names.clone();
+    }
+
+    private int getColumnIndex(String name) {
+        for (int i = 0; i < this.names.length; i++) {
+            if (this.names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown result column: " + name);
+    }
+
+    private Object readValue(DataInputStream in, char type) throws IOException {
+        switch (type) {
+            case 's':
+                return in.readUTF();
+            case 'b':
+                return (double) in.readByte();
+            case 'i':
+                return (double) in.readInt();
+            case 'l':
+                return (double) in.readLong();
+            case 'f':
+                return (double) in.readFloat();
+            default:
+                throw new IOException("Unknown column type: " + type);
+        }
+    }
+
+    /**
+     * Read a set of columns row by row
+     *
+     * @param columns the names of the columns to read
+     * @param visitor receives every row with one value per requested column, the array is reused between rows
+     * @throws IOException if one of the column files can't be read
+     */
+    public void scan(String[] columns, Consumer<Object[]> visitor) throws IOException {
+        int[] indices = new int[columns.length];
+        DataInputStream[] inputs = new DataInputStream[columns.length];
+        try {
+            for (int i = 0; i < columns.length; i++) {
+                indices[i] = this.getColumnIndex(columns[i]);
+                inputs[i] = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+                        Files.newInputStream(this.folder.resolve(columns[i] + MarioResultWriter.COLUMN_EXTENSION)))));
+            }
+            Object[] row = new Object[columns.length];
+            while (true) {
+                for (int i = 0; i < columns.length; i++) {
+                    try {
+                        row[i] = this.readValue(inputs[i], this.types[indices[i]]);
+                    } catch (EOFException e) {
+                        if (i > 0) {
+                            throw new IOException("Result column " + columns[i] + " is shorter than " + columns[0]);
+                        }
+                        return;
+                    }
+                }
+                visitor.accept(row);
+            }
+        } finally {
+            for (DataInputStream input : inputs) {
+                if (input != null) {
+                    input.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of saved results
+     *
+     * @return the number of rows
+     * @throws IOException if the status column can't be read
+     */
+    public long getNumberOfRows() throws IOException {
+        long[] rows = new long[1];
+        this.scan(new String[]{"status"}, row -> rows[0] += 1);
+        return rows[0];
+    }
+
+    /**
+     * Read all the values of a number column
+     *
+     * @param column the column name
+     * @return the values in the order they were written
+     * @throws IOException if the column can't be read
+     */
+    public double[] readNumbers(String column) throws IOException {
+        if (this.types[this.getColumnIndex(column)] == 's') {
+            throw new IllegalArgumentException("Result column is not a number: " + column);
+        }
+        double[][] values = new double[][]{new double[1024]};
+        int[] size = new int[1];
+        this.scan(new String[]{column}, row -> {
+            if (size[0] == values[0].length) {
+                values[0] = Arrays.copyOf(values[0], size[0] * 2);
+            }
+            values[0][size[0]++] = (Double) row[0];
+        });
+        return Arrays.copyOf(values[0], size[0]);
+    }
+
+    /**
+     * Read all the values of a string column
+     *
+     * @param column the column name
+     * @return the values in the order they were written
+     * @throws IOException if the column can't be read
+     */
+    public ArrayList<String> readStrings(String column) throws IOException {
+        if (this.types[this.getColumnIndex(column)] != 's') {
+            throw new IllegalArgumentException("Result column is not a string: " + column);
+        }
+        ArrayList<String> values = new ArrayList<>();
+        this.scan(new String[]{column}, row -> values.add((String) row[0]));
+        return values;
+    }
+
+    /**
+     * Get the average of a number column over the games that didn't fail
+     *
+     * @param column the column name
+     * @return the average value or 0 if there are no results
+     * @throws IOException if the column can't be read
+     */
+    public double mean(String column) throws IOException {
+        double[] sum = new double[2];
+        this.scan(new String[]{"status", column}, row -> {
+            if ((Double) row[0] >= 0) {
+                sum[0] += (Double) row[1];
+                sum[1] += 1;
+            }
+        });
+        return sum[1] > 0 ? sum[0] / sum[1] : 0;
+    }
+
+    /**
+     * Get the average of a number column for every value of a string column, for example the average
+     * completion of every agent, over the games that didn't fail
+     *
+     * @param groupColumn the column that is used to group the results (agent or level)
+     * @param column      the number column that is averaged
+     * @return the average of every group in the order the groups first appear, 0 for a group whose games all failed
+     * @throws IOException if one of the columns can't be read
+     */
+    public LinkedHashMap<String, Double> meanBy(String groupColumn, String column) throws IOException {
+        LinkedHashMap<String, double[]> sums = new LinkedHashMap<>();
+        this.scan(new String[]{"status", groupColumn, column}, row -> {
+            double[] sum = sums.computeIfAbsent((String) row[1], key -> new double[2]);
+            if ((Double) row[0] >= 0) {
+                sum[0] += (Double) row[2];
+                sum[1] += 1;
+            }
+        });
+        LinkedHashMap<String, Double> means = new LinkedHashMap<>();
+        for (String group : sums.keySet()) {
+            means.put(group, sums.get(group)[1] > 0 ? sums.get(group)[0] / sums.get(group)[1] : 0);
+        }
+        return means;
+    }
+}
@@ -0,0 +1,262 @@
+package engine.core;
+
+import engine.helper.EventType;
+import engine.helper.GameStatus;
+import engine.helper.SpriteType;
+
+/**
+ * The statistics of a finished game computed in one pass over its events. Unlike MarioResult it doesn't keep
+ * the world or the event lists, so a summary stays a few kilobytes (mostly the latency histogram) and can be
+ * kept for a very large number of games. The getters have the same names and meaning as in MarioResult.
+ */
+public class MarioResultSummary {
+    private final GameStatus gameStatus;
+    private final float completionPercentage;
+    private final int remainingTime;
+    private final int marioMode;
+    private final int lives;
+    private final int coins;
+    private final int ticks;
+
+    private final int killsByStomp;
+    private final int killsByFire;
+    private final int killsByShell;
+    private final int killsByFall;
+    private final int[] killsByType;
+    private final int hurts;
+    private final int bumpQuestionBlock;
+    private final int bumpBrick;
+    private final int destroyedBricks;
+    private final int jumps;
+    private final float maxXJump;
+    private final int maxJumpAirTime;
+    private final int collectedMushrooms;
+    private final int collectedFireflowers;
+    private final int collectedTileCoins;
+
+    private final MarioLatencyHistogram agentLatency;
+    private final int agentOverruns;
+    private final int missedFrames;
+    private final int skippedFrames;
+
+    /**
+     * Compute the summary of a game result
+     *
+     * @param result the result of a finished game
+     */
+    public MarioResultSummary(MarioResult result) {
+        this.gameStatus = result.getGameStatus();
+        this.completionPercentage = result.getCompletionPercentage();
+        this.remainingTime = result.getRemainingTime();
+        this.marioMode = result.getMarioMode();
+        this.lives = result.getCurrentLives();
+        this.coins = result.getCurrentCoins();
+        this.ticks = result.getAgentEvents().size();
+
+        int stomp = 0, fire = 0, shell = 0, fall = 0, hurt = 0;
+        int question = 0, brick = 0, destroyed = 0, jump = 0, airTime = 0;
+        int mushroom = 0, flower = 0, tileCoin = 0;
+        float xJump = 0;
+        float startX = -100;
+        int startTime = -100;
+        int[] typeKills = new int[SpriteType.LIFE_MUSHROOM.getValue() + 1];
+        for (MarioEvent e : result.getGameEvents()) {
+            int type = e.getEventType();
+            int param = e.getEventParam();
+            if (type == EventType.STOMP_KILL.getValue() || type == EventType.FIRE_KILL.getValue() ||
+                    type == EventType.SHELL_KILL.getValue()) {
+                if (type == EventType.STOMP_KILL.getValue()) {
+                    stomp += 1;
+                } else if (type == EventType.FIRE_KILL.getValue()) {
+                    fire += 1;
+                } else {
+                    shell += 1;
+                }
+                if (param >= 0 && param < typeKills.length) {
+                    typeKills[param] += 1;
+                }
+            } else if (type == EventType.FALL_KILL.getValue()) {
+                fall += 1;
+            } else if (type == EventType.HURT.getValue()) {
+                hurt += 1;
+            } else if (type == EventType.BUMP.getValue()) {
+                if (param == MarioForwardModel.OBS_QUESTION_BLOCK) {
+                    question += 1;
+                }
+                if (param == MarioForwardModel.OBS_BRICK) {
+                    brick += 1;
+                    if (e.getMarioState() > 0) {
+                        destroyed += 1;
+                    }
+                }
+            } else if (type == EventType.JUMP.getValue()) {
+                jump += 1;
+                startX = e.getMarioX();
+                startTime = e.getTime();
+            } else if (type == EventType.LAND.getValue()) {
+                xJump = Math.max(xJump, Math.abs(e.getMarioX() - startX));
+                airTime = Math.max(airTime, e.getTime() - startTime);
+            } else if (type == EventType.COLLECT.getValue()) {
+                if (param == SpriteType.MUSHROOM.getValue()) {
+                    mushroom += 1;
+                }
+                if (param == SpriteType.FIRE_FLOWER.getValue()) {
+                    flower += 1;
+                }
+                if (param == MarioForwardModel.OBS_COIN) {
+                    tileCoin += 1;
+                }
+            }
+        }
+        this.killsByStomp = stomp;
+        this.killsByFire = fire;
+        this.killsByShell = shell;
+        this.killsByFall = fall;
+        this.killsByType = typeKills;
+        this.hurts = hurt;
+        this.bumpQuestionBlock = question;
+        this.bumpBrick = brick;
+        this.destroyedBricks = destroyed;
+        this.jumps = jump;
+        this.maxXJump = xJump;
+        this.maxJumpAirTime = airTime;
+        this.collectedMushrooms = mushroom;
+        this.collectedFireflowers = flower;
+        this.collectedTileCoins = tileCoin;
+
+        this.agentLatency = new MarioLatencyHistogram();
+        this.agentLatency.add(result.getAgentLatency());
+        this.agentOverruns = result.getNumAgentOverruns();
+        this.missedFrames = result.getNumMissedFrames();
+        this.skippedFrames = result.getNumSkippedFrames();
+    }
+
+    public GameStatus getGameStatus() {
+        return this.gameStatus;
+    }
+
+    public float getCompletionPercentage() {
+        return this.completionPercentage;
+    }
+
+    public int getRemainingTime() {
+        return this.remainingTime;
+    }
+
+    public int getMarioMode() {
+        return this.marioMode;
+    }
+
+    public int getCurrentLives() {
+        return this.lives;
+    }
+
+    public int getCurrentCoins() {
+        return this.coins;
+    }
+
+    /**
+     * Get the length of the game
+     *
+     * @return the number of ticks the agent played
+     */
+    public int getNumberOfTicks() {
+        return this.ticks;
+    }
+
+    public int getKillsTotal() {
+        return this.killsByStomp + this.killsByFire + this.killsByShell + this.killsByFall;
+    }
+
+    public int getKillsByStomp() {
+        return this.killsByStomp;
+    }
+
+    public int getKillsByFire() {
+        return this.killsByFire;
+    }
+
+    public int getKillsByShell() {
+        return this.killsByShell;
+    }
+
+    public int getKillsByFall() {
+        return this.killsByFall;
+    }
+
+    /**
+     * get Num of kills for a certain enemy Type by stomping, fireballs or shells
+     *
+     * @param enemyType the enemy type from SpriteType
+     * @return number of a certain type of enemy that has been killed by Mario
+     */
+    public int getMarioNumKills(int enemyType) {
+        if (enemyType < 0 || enemyType >= this.killsByType.length) {
+            return 0;
+        }
+        return this.killsByType[enemyType];
+    }
+
+    public int getMarioNumHurts() {
+        return this.hurts;
+    }
+
+    public int getNumBumpQuestionBlock() {
+        return this.bumpQuestionBlock;
+    }
+
+    public int getNumBumpBrick() {
+        return this.bumpBrick;
+    }
+
+    public int getNumDestroyedBricks() {
+        return this.destroyedBricks;
+    }
+
+    public int getNumJumps() {
+        return this.jumps;
+    }
+
+    public float getMaxXJump() {
+        return this.maxXJump;
+    }
+
+    public int getMaxJumpAirTime() {
+        return this.maxJumpAirTime;
+    }
+
+    public int getNumCollectedMushrooms() {
+        return this.collectedMushrooms;
+    }
+
+    public int getNumCollectedFireflower() {
+        return this.collectedFireflowers;
+    }
+
+    public int getNumCollectedTileCoins() {
+        return this.collectedTileCoins;
+    }
+
+    /**
+     * Get the histogram of the time the agent took to return its actions every tick
+     *
+     * @return a copy of the agent latency histogram in nanoseconds
+     */
+    public MarioLatencyHistogram getAgentLatency() {
+        MarioLatencyHistogram latency = new MarioLatencyHistogram();
+        latency.add(this.agentLatency);
+        return latency;
+    }
+
+    public int getNumAgentOverruns() {
+        return this.agentOverruns;
+    }
+
+    public int getNumMissedFrames() {
+        return this.missedFrames;
+    }
+
+    public int getNumSkippedFrames() {
+        return this.skippedFrames;
+    }
+}
@@ -0,0 +1,201 @@
+package engine.core;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import engine.helper.SpriteType;
+
+/**
+ * Streams game results into a folder of compressed column files, one file per statistic, so a batch of
+ * any size can be saved without keeping its results in memory. Every result becomes one row of fixed columns
+ * the moment it is written. Writing to a folder that already has results appends new rows to it.
+ * Use MarioResultReader to read the columns back.
+ */
+public class MarioResultWriter implements Closeable {
+    static final String COLUMNS_FILE = "columns.txt";
+    static final String COLUMN_EXTENSION = ".gz";
+
+    //the sprite types of the kills columns, in the same order as the columns
+    static final SpriteType[] KILL_TYPES = new SpriteType[]{
+            SpriteType.GOOMBA, SpriteType.GOOMBA_WINGED, SpriteType.RED_KOOPA, SpriteType.RED_KOOPA_WINGED,
+            SpriteType.GREEN_KOOPA, SpriteType.GREEN_KOOPA_WINGED, SpriteType.SPIKY, SpriteType.SPIKY_WINGED,
+            SpriteType.BULLET_BILL, SpriteType.ENEMY_FLOWER, SpriteType.SHELL
+    };
+
+    //column types: s string, b byte, i int, l long, f float
+    static final String[] COLUMN_NAMES = new String[]{
+            "agent", "level", "status", "completion", "remainingTime", "lives", "coins", "marioMode",
+            "killsTotal", "killsByStomp", "killsByFire", "killsByShell", "killsByFall",
+            "killsGoomba", "killsGoombaWinged", "killsRedKoopa", "killsRedKoopaWinged", "killsGreenKoopa",
+            "killsGreenKoopaWinged", "killsSpiky", "killsSpikyWinged", "killsBulletBill", "killsEnemyFlower", "killsShell",
+            "hurts", "jumps", "maxXJump", "maxJumpAirTime", "mushrooms", "fireFlowers", "tileCoins", "bricks",
+            "ticks", "gameNanos", "agentLatencyMeanNanos", "agentLatencyP99Nanos", "agentLatencyMaxNanos", "agentOverruns"
+    };
+    static final String COLUMN_TYPES = "ssbfiiibiiiiiiiiiiiiiiiiiifiiiiiilllli";
+
+    private Path folder;
+    private DataOutputStream[] columns;
+    private long rows;
+
+    /**
+     * Create a writer that appends to the results in a folder, the folder is created if it doesn't exist
+     *
+     * @param folder the folder that contains the column files
+     * @throws IOException if the folder can't be created or it contains results with different columns
+     */
+    public MarioResultWriter(String folder) throws IOException {
+        this.folder = Paths.get(folder);
+        Files.createDirectories(this.folder);
+        Path header = this.folder.resolve(COLUMNS_FILE);
+        List<String> expected = getHeader();
+        if (Files.exists(header)) {
+            if (!Files.readAllLines(header).equals(expected)) {
+                throw new IOException("The results in " + folder + " have different columns");
+            }
+        } else {
+            Files.write(header, expected);
+        }
+        //every writer adds a new gzip member to the end of the files, gzip readers read them as one stream
+        this.columns = new DataOutputStream[COLUMN_NAMES.length];
+        try {
+            for (int i = 0; i < this.columns.length; i++) {
+                this.columns[i] = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+                        new FileOutputStream(this.folder.resolve(COLUMN_NAMES[i] + COLUMN_EXTENSION).toFile(), true))));
+            }
+        } catch (IOException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    private static List<String> getHeader() {
+        String[] lines = new String[COLUMN_NAMES.length];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = COLUMN_NAMES[i] + " " + COLUMN_TYPES.charAt(i);
+        }
+        return Arrays.asList(lines);
+    }
+
+    /**
+     * Write the result of a batch game, games that failed are written with status -1 and zero statistics that
+     * MarioResultReader leaves out of its averages
+     *
+     * @param result the batch result
+     * @throws IOException if one of the files can't be written
+     */
+    public void write(MarioBatchResult result) throws IOException {
+        this.write(result.getAgentName(), result.getLevelName(), result.getSummary(), result.getElapsedNanos());
+    }
+
+    /**
+     * Write the result of a game
+     *
+     * @param agentName    the name of the agent that played the game
+     * @param levelName    the name of the level that was played
+     * @param result       the statistics of the game or null if the game failed
+     * @param elapsedNanos the time the game took to run
+     * @throws IOException if one of the files can't be written
+     */
+    public void write(String agentName, String levelName, MarioResultSummary result, long elapsedNanos) throws IOException {
+        int c = 0;
+        this.columns[c++].writeUTF(agentName);
+        this.columns[c++].writeUTF(levelName);
+        if (result == null) {
+            this.columns[c++].writeByte(-1);
+            for (; c < this.columns.length; c++) {
+                this.writeNumber(c, 0);
+            }
+        } else {
+            MarioLatencyHistogram latency = result.getAgentLatency();
+            this.columns[c++].writeByte(result.getGameStatus().ordinal());
+            this.columns[c++].writeFloat(result.getCompletionPercentage());
+            this.columns[c++].writeInt(result.getRemainingTime());
+            this.columns[c++].writeInt(result.getCurrentLives());
+            this.columns[c++].writeInt(result.getCurrentCoins());
+            this.columns[c++].writeByte(result.getMarioMode());
+            this.columns[c++].writeInt(result.getKillsTotal());
+            this.columns[c++].writeInt(result.getKillsByStomp());
+            this.columns[c++].writeInt(result.getKillsByFire());
+            this.columns[c++].writeInt(result.getKillsByShell());
+            this.columns[c++].writeInt(result.getKillsByFall());
+            for (SpriteType type : KILL_TYPES) {
+                this.columns[c++].writeInt(result.getMarioNumKills(type.getValue()));
+            }
+            this.columns[c++].writeInt(result.getMarioNumHurts());
+            this.columns[c++].writeInt(result.getNumJumps());
+            this.columns[c++].writeFloat(result.getMaxXJump());
+            this.columns[c++].writeInt(result.getMaxJumpAirTime());
+            this.columns[c++].writeInt(result.getNumCollectedMushrooms());
+            this.columns[c++].writeInt(result.getNumCollectedFireflower());
+            this.columns[c++].writeInt(result.getNumCollectedTileCoins());
+            this.columns[c++].writeInt(result.getNumDestroyedBricks());
+            this.columns[c++].writeInt(result.getNumberOfTicks());
+            this.columns[c++].writeLong(elapsedNanos);
+            this.columns[c++].writeLong((long) latency.getMeanNanos());
+            this.columns[c++].writeLong(latency.getPercentileNanos(99));
+            this.columns[c++].writeLong(latency.getMaxNanos());
+            this.columns[c++].writeInt(result.getNumAgentOverruns());
+        }
+        this.rows += 1;
+    }
+
+    private void writeNumber(int column, long value) throws IOException {
+        switch (COLUMN_TYPES.charAt(column)) {
+            case 'b':
+                this.columns[column].writeByte((int) value);
+                break;
+            case 'i':
+                this.columns[column].writeInt((int) value);
+                break;
+            case 'l':
+                this.columns[column].writeLong(value);
+                break;
+            case 'f':
+                this.columns[column].writeFloat(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Column is not a number: " + COLUMN_NAMES[column]);
+        }
+    }
+
+    /**
+     * Get the number of rows written by this writer
+     *
+     * @return number of written results
+     */
+    public long getNumberOfRows() {
+        return this.rows;
+    }
+
+    /**
+     * Finish the compressed files, the results can't be read before the writer is closed
+     *
+     * @throws IOException if one of the files can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        for (DataOutputStream column : this.columns) {
+            if (column == null) {
+                continue;
+            }
+            try {
+                column.close();
+            } catch (IOException e) {
+                error = error == null ? e : error;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+}
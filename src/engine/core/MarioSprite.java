@@ -9,14 +9,18 @@ public abstract class MarioSprite {
     //    public static SpriteContext spriteContext;
     public SpriteType type = SpriteType.UNDEF;
 
-    public String initialCode;
+    public int initialCode;
     public float x, y, xa, ya;
     public int width, height, facing;
     public boolean alive;
     public MarioWorld world;
+    //the last journal epoch that the sprite saved its state in
+    protected int journalEpoch = 0;
+    //set while the sprite waits to be taken out of the world at the end of the tick
+    boolean removing;
 
     public MarioSprite(float x, float y, SpriteType type) {
-        this.initialCode = "";
+        this.initialCode = -1;
         this.x = x;
         this.y = y;
         this.xa = 0;
@@ -33,6 +37,44 @@ public abstract class MarioSprite {
         return null;
     }
 
+    /**
+     * Push all the values that are needed to restore the current sprite state to the journal.
+     * Subclasses that have extra state have to call the super method first then push their own values.
+     *
+     * @param journal the journal of the world that the sprite belongs to
+     */
+    protected void saveState(MarioJournal journal) {
+        journal.pushFloat(this.x);
+        journal.pushFloat(this.y);
+        journal.pushFloat(this.xa);
+        journal.pushFloat(this.ya);
+        journal.pushInt(this.width);
+        journal.pushInt(this.height);
+        journal.pushInt(this.facing);
+        journal.pushInt(this.initialCode);
+        journal.pushBoolean(this.alive);
+        journal.pushObject(this.world);
+    }
+
+    /**
+     * Pop the values pushed by saveState in the reverse order to restore the sprite state.
+     * Subclasses that have extra state have to pop their own values first then call the super method.
+     *
+     * @param journal the journal of the world that the sprite belongs to
+     */
+    protected void restoreState(MarioJournal journal) {
+        this.world = (MarioWorld) journal.popObject();
+        this.alive = journal.popBoolean();
+        this.initialCode = journal.popInt();
+        this.facing = journal.popInt();
+        this.height = journal.popInt();
+        this.width = journal.popInt();
+        this.ya = journal.popFloat();
+        this.xa = journal.popFloat();
+        this.y = journal.popFloat();
+        this.x = journal.popFloat();
+    }
+
     public void added() {
 
     }
@@ -0,0 +1,309 @@
+package engine.core;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import engine.helper.SpriteType;
+
+/**
+ * The sprites of a world kept in one array in update order, with a primitive flags value for every sprite
+ * that is derived from its type. The world uses the flags to skip the sprites that a check can't apply to
+ * without touching them. Sprites that are added or removed during a tick are queued and applied in a single
+ * pass at the end of the tick, added sprites go in front of the existing ones.
+ * The projectile targets of a tick are also kept as a group of indices with their x positions in a primitive
+ * array, so the shell and fireball passes only touch the sprites that are close enough to be hit. The update
+ * order itself is never changed, it decides the order of the events and the results of the games.
+ */
+class MarioSpriteStore implements Iterable<MarioSprite> {
+    /**
+     * enemy sprites (same as MarioWorld.isEnemy)
+     */
+    static final int ENEMY = 1;
+    /**
+     * sprites that can be hit by shells and fireballs
+     */
+    static final int PROJECTILE_TARGET = 2;
+    /**
+     * sprites that react to mario bumping the tile under them
+     */
+    static final int BUMP_TARGET = 4;
+
+    private static final int[] TYPE_FLAGS = createTypeFlags();
+
+    private MarioSprite[] sprites;
+    private int[] flags;
+    private int size;
+    private int enemies;
+    private MarioSprite[] added;
+    private int addedCount;
+    private MarioSprite[] removed;
+    private int removedCount;
+    //the projectile targets of the current tick in update order and their x positions after the collide checks
+    private int[] targets;
+    private float[] targetX;
+    private int targetCount;
+
+    MarioSpriteStore() {
+        this(16);
+    }
+
+    MarioSpriteStore(int capacity) {
+        this.sprites = new MarioSprite[Math.max(capacity, 4)];
+        this.flags = new int[this.sprites.length];
+        this.added = new MarioSprite[4];
+        this.removed = new MarioSprite[4];
+        this.targets = new int[4];
+        this.targetX = new float[4];
+    }
+
+    private static int[] createTypeFlags() {
+        int[] flags = new int[SpriteType.values().length];
+        for (SpriteType type : SpriteType.values()) {
+            switch (type) {
+                case GOOMBA:
+                case GOOMBA_WINGED:
+                case RED_KOOPA:
+                case RED_KOOPA_WINGED:
+                case GREEN_KOOPA:
+                case GREEN_KOOPA_WINGED:
+                case SPIKY:
+                case SPIKY_WINGED:
+                case ENEMY_FLOWER:
+                    flags[type.ordinal()] = ENEMY | PROJECTILE_TARGET | BUMP_TARGET;
+                    break;
+                case BULLET_BILL:
+                    flags[type.ordinal()] = ENEMY | PROJECTILE_TARGET;
+                    break;
+                case SHELL:
+                    flags[type.ordinal()] = PROJECTILE_TARGET | BUMP_TARGET;
+                    break;
+                case MUSHROOM:
+                case LIFE_MUSHROOM:
+                    flags[type.ordinal()] = BUMP_TARGET;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return flags;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    MarioSprite get(int index) {
+        return this.sprites[index];
+    }
+
+    /**
+     * Get the flags of the sprite at a certain index
+     *
+     * @param index the index of the sprite in update order
+     * @return a combination of ENEMY, PROJECTILE_TARGET and BUMP_TARGET
+     */
+    int getFlags(int index) {
+        return this.flags[index];
+    }
+
+    int getNumberOfEnemies() {
+        return this.enemies;
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity > this.sprites.length) {
+            int length = Math.max(capacity, this.sprites.length * 2);
+            this.sprites = Arrays.copyOf(this.sprites, length);
+            this.flags = Arrays.copyOf(this.flags, length);
+        }
+    }
+
+    /**
+     * Add a sprite at the end right away, used while building a world and not while it is updating
+     *
+     * @param sprite the sprite to add
+     */
+    void add(MarioSprite sprite) {
+        this.ensureCapacity(this.size + 1);
+        this.sprites[this.size] = sprite;
+        this.flags[this.size] = TYPE_FLAGS[sprite.type.ordinal()];
+        this.enemies += this.flags[this.size] & ENEMY;
+        this.size += 1;
+    }
+
+    void clear() {
+        Arrays.fill(this.sprites, 0, this.size, null);
+        this.size = 0;
+        this.enemies = 0;
+    }
+
+    MarioSprite[] toArray() {
+        return Arrays.copyOf(this.sprites, this.size);
+    }
+
+    /**
+     * Replace all the sprites, used to restore a saved state
+     *
+     * @param sprites the sprites in update order
+     */
+    void setAll(MarioSprite[] sprites) {
+        this.clear();
+        this.ensureCapacity(sprites.length);
+        for (MarioSprite sprite : sprites) {
+            this.add(sprite);
+        }
+    }
+
+    /**
+     * Start a new group of projectile targets, the group is only valid until the queued changes are applied
+     */
+    void clearTargets() {
+        this.targetCount = 0;
+    }
+
+    /**
+     * Add the sprite at a certain index to the projectile targets if it is flagged as one
+     *
+     * @param index the index of the sprite in update order
+     */
+    void addTarget(int index) {
+        if ((this.flags[index] & PROJECTILE_TARGET) == 0) {
+            return;
+        }
+        if (this.targetCount == this.targets.length) {
+            this.targets = Arrays.copyOf(this.targets, this.targetCount * 2);
+            this.targetX = Arrays.copyOf(this.targetX, this.targetCount * 2);
+        }
+        this.targets[this.targetCount] = index;
+        this.targetX[this.targetCount] = this.sprites[index].x;
+        this.targetCount += 1;
+    }
+
+    int getNumberOfTargets() {
+        return this.targetCount;
+    }
+
+    /**
+     * Get the sprite index of a projectile target
+     *
+     * @param target the index in the group of targets
+     * @return the index of the sprite in update order
+     */
+    int getTarget(int target) {
+        return this.targets[target];
+    }
+
+    /**
+     * Get the x position that a projectile target had when it was added to the group
+     *
+     * @param target the index in the group of targets
+     * @return the x position of the sprite
+     */
+    float getTargetX(int target) {
+        return this.targetX[target];
+    }
+
+    /**
+     * Queue a sprite to be added at the end of the tick
+     *
+     * @param sprite the new sprite
+     */
+    void queueAdd(MarioSprite sprite) {
+        if (this.addedCount == this.added.length) {
+            this.added = Arrays.copyOf(this.added, this.addedCount * 2);
+        }
+        this.added[this.addedCount++] = sprite;
+    }
+
+    /**
+     * Queue a sprite to be removed at the end of the tick, a removed sprite is also dropped from the queued
+     * sprites even if it was added again in the same tick
+     *
+     * @param sprite the sprite to remove
+     */
+    void queueRemove(MarioSprite sprite) {
+        if (this.removedCount == this.removed.length) {
+            this.removed = Arrays.copyOf(this.removed, this.removedCount * 2);
+        }
+        this.removed[this.removedCount++] = sprite;
+        sprite.removing = true;
+    }
+
+    /**
+     * Apply the queued changes in one pass, the added sprites go in front of the remaining sprites in the
+     * order they were added
+     *
+     * @return true if one of the added or removed sprites was spawned from a sprite template
+     */
+    boolean commit() {
+        if (this.addedCount == 0 && this.removedCount == 0) {
+            return false;
+        }
+        boolean spawnedChanged = false;
+        int kept = 0;
+        for (int i = 0; i < this.addedCount; i++) {
+            spawnedChanged |= this.added[i].initialCode >= 0;
+            if (!this.added[i].removing) {
+                kept += 1;
+            }
+        }
+        int remaining = 0;
+        for (int i = 0; i < this.size; i++) {
+            if (!this.sprites[i].removing) {
+                this.sprites[remaining] = this.sprites[i];
+                this.flags[remaining] = this.flags[i];
+                remaining += 1;
+            }
+        }
+        this.ensureCapacity(kept + remaining);
+        System.arraycopy(this.sprites, 0, this.sprites, kept, remaining);
+        System.arraycopy(this.flags, 0, this.flags, kept, remaining);
+        for (int i = 0, index = 0; i < this.addedCount; i++) {
+            if (!this.added[i].removing) {
+                this.sprites[index] = this.added[i];
+                this.flags[index] = TYPE_FLAGS[this.added[i].type.ordinal()];
+                index += 1;
+            }
+        }
+        if (kept + remaining < this.size) {
+            Arrays.fill(this.sprites, kept + remaining, this.size, null);
+        }
+        this.size = kept + remaining;
+        this.enemies = 0;
+        for (int i = 0; i < this.size; i++) {
+            this.enemies += this.flags[i] & ENEMY;
+        }
+
+        for (int i = 0; i < this.removedCount; i++) {
+            spawnedChanged |= this.removed[i].initialCode >= 0;
+            this.removed[i].removing = false;
+        }
+        Arrays.fill(this.added, 0, this.addedCount, null);
+        Arrays.fill(this.removed, 0, this.removedCount, null);
+        this.addedCount = 0;
+        this.removedCount = 0;
+        this.targetCount = 0;
+        return spawnedChanged;
+    }
+
+    @Override
+    public Iterator<MarioSprite> iterator() {
+        return new Iterator<MarioSprite>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.index < MarioSpriteStore.this.size;
+            }
+
+            @Override
+            public MarioSprite next() {
+                if (this.index >= MarioSpriteStore.this.size) {
+                    throw new NoSuchElementException();
+                }
+                return MarioSpriteStore.this.sprites[this.index++];
+            }
+        };
+    }
+}
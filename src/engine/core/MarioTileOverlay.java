@@ -0,0 +1,109 @@
+package engine.core;
+
+import java.util.Arrays;
+
+/**
+ * Small open addressing map from a tile position to a tile index. It is used by the level to store the tiles
+ * that changed from the original layout, so clones only copy the modified tiles instead of the whole map.
+ */
+class MarioTileOverlay {
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Create an empty overlay
+     */
+    MarioTileOverlay() {
+        this.keys = new int[8];
+        this.values = new int[8];
+        this.size = 0;
+        Arrays.fill(this.keys, EMPTY);
+    }
+
+    private MarioTileOverlay(MarioTileOverlay other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.size = other.size;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        h ^= h >>> 16;
+        int mask = this.keys.length - 1;
+        int index = h & mask;
+        while (this.keys[index] != EMPTY && this.keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Number of modified tiles stored in the overlay
+     *
+     * @return the number of stored tiles
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Get the stored value for a certain tile position
+     *
+     * @param key          the packed tile position
+     * @param defaultValue the value returned if the tile was never modified
+     * @return the modified tile index or the default value
+     */
+    int get(int key, int defaultValue) {
+        int index = this.slot(key);
+        if (this.keys[index] == EMPTY) {
+            return defaultValue;
+        }
+        return this.values[index];
+    }
+
+    /**
+     * Store a new value for a certain tile position
+     *
+     * @param key   the packed tile position (has to be positive)
+     * @param value the new tile index
+     */
+    void put(int key, int value) {
+        int index = this.slot(key);
+        if (this.keys[index] == EMPTY) {
+            if (2 * (this.size + 1) > this.keys.length) {
+                this.grow();
+                index = this.slot(key);
+            }
+            this.keys[index] = key;
+            this.size += 1;
+        }
+        this.values[index] = value;
+    }
+
+    private void grow() {
+        int[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.keys = new int[oldKeys.length * 2];
+        this.values = new int[oldValues.length * 2];
+        Arrays.fill(this.keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = this.slot(oldKeys[i]);
+                this.keys[index] = oldKeys[i];
+                this.values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Create a copy of the overlay, the cost depends only on the number of modified tiles
+     *
+     * @return an independent copy of the overlay
+     */
+    public MarioTileOverlay clone() {
+        return new MarioTileOverlay(this);
+    }
+}
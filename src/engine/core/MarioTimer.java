@@ -15,8 +15,8 @@ public class MarioTimer {
      * @param remainingTime the amount of milliseconds before the timer runs out
      */
     public MarioTimer(long remainingTime) {
-        this.startTimer = System.currentTimeMillis();
-        this.remainingTime = remainingTime;
+        this.startTimer = System.nanoTime();
+        this.remainingTime = remainingTime * 1000000L;
     }
 
     /**
@@ -25,6 +25,24 @@ public class MarioTimer {
      * @return number of milliseconds remaining in that timer.
      */
     public long getRemainingTime() {
-        return Math.max(0, this.remainingTime - (System.currentTimeMillis() - this.startTimer));
+        return this.getRemainingNanos() / 1000000L;
+    }
+
+    /**
+     * Get the remaining time in that timer since construction
+     *
+     * @return number of nanoseconds remaining in that timer.
+     */
+    public long getRemainingNanos() {
+        return Math.max(0, this.remainingTime - this.getElapsedNanos());
+    }
+
+    /**
+     * Get the time passed since the timer started, it keeps growing after the timer runs out
+     *
+     * @return number of nanoseconds since construction
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime() - this.startTimer;
     }
 }
@@ -0,0 +1,179 @@
+package engine.core;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs a tournament where every agent plays every level and each game loop runs on its own thread.
+ * On runtimes that support virtual threads every game gets a virtual thread so thousands of games can be
+ * in flight at the same time, otherwise the games share a fixed pool of platform threads. In both cases the
+ * number of game ticks that are computed at the same time is limited by a fair set of permits, so the games
+ * take turns tick by tick. Agents that spend most of their time waiting (for example on a remote policy) can
+ * be added as blocking so their ticks don't hold one of the permits. Virtual threads are looked up by reflection
+ * because they only exist from Java 21, on older runtimes (like the Java 17 this framework targets) the fixed
+ * pool is always used.
+ */
+public class MarioTournament {
+    private int cpuPermits;
+    private int platformThreads;
+    private MarioGameSet games;
+    private ArrayList<Boolean> blockingAgents;
+
+    /**
+     * Create a tournament that computes one game tick for every available processor at the same time
+     */
+    public MarioTournament() {
+        this(Runtime.getRuntime().availableProcessors(), 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a tournament
+     *
+     * @param cpuPermits      the maximum number of game ticks that are computed at the same time
+     * @param platformThreads the number of threads running games when virtual threads are not supported
+     */
+    public MarioTournament(int cpuPermits, int platformThreads) {
+        if (cpuPermits <= 0 || platformThreads <= 0) {
+            throw new IllegalArgumentException("Number of permits and threads has to be positive.");
+        }
+        this.cpuPermits = cpuPermits;
+        this.platformThreads = platformThreads;
+        this.games = new MarioGameSet();
+        this.blockingAgents = new ArrayList<>();
+    }
+
+    /**
+     * Add an agent that uses the processor while computing its actions
+     *
+     * @param name    the name used in the results
+     * @param factory creates a new agent for every game
+     */
+    public void addAgent(String name, Supplier<MarioAgent> factory) {
+        this.addAgent(name, factory, false);
+    }
+
+    /**
+     * Add an agent to the tournament
+     *
+     * @param name     the name used in the results
+     * @param factory  creates a new agent for every game
+     * @param blocking true if the agent waits on I/O in getActions so its ticks don't need a processor permit
+     */
+    public void addAgent(String name, Supplier<MarioAgent> factory, boolean blocking) {
+        this.games.addAgent(name, factory);
+        this.blockingAgents.add(blocking);
+    }
+
+    /**
+     * Add a level to the tournament, it is named after its position (level-0, level-1, ...)
+     *
+     * @param level the level string using the same representation as the level files
+     */
+    public void addLevel(String level) {
+        this.addLevel("level-" + this.games.getNumberOfLevels(), level);
+    }
+
+    /**
+     * Add a level to the tournament
+     *
+     * @param name  the name used for the failed games
+     * @param level the level string using the same representation as the level files
+     */
+    public void addLevel(String name, String level) {
+        this.games.addLevel(name, level);
+    }
+
+    /**
+     * Add all the level files in a folder sorted by their name
+     *
+     * @param folder the path of the folder that contains the level files
+     * @throws IOException if the folder or one of the files can't be read
+     */
+    public void addLevelFolder(String folder) throws IOException {
+        this.games.addLevelFolder(folder);
+    }
+
+    /**
+     * Check if the current runtime runs the games on virtual threads
+     *
+     * @return true if virtual threads are supported
+     */
+    public static boolean supportsVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private ExecutorService createExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(this.platformThreads);
+        }
+    }
+
+    //submit all the games and return straight away, the results are filled while the games finish
+    private MarioTournamentResults start(int timer, int marioState, ExecutorService executor) {
+        MarioTournamentResults results = new MarioTournamentResults(this.games.getAgentNames());
+        Semaphore permits = new Semaphore(this.cpuPermits, true);
+        //level first so all the agents progress at the same rate
+        for (int l = 0; l < this.games.getNumberOfLevels(); l++) {
+            for (int a = 0; a < this.games.getNumberOfAgents(); a++) {
+                int agent = a;
+                int level = l;
+                boolean blocking = this.blockingAgents.get(a);
+                executor.execute(() -> {
+                    long startTime = System.nanoTime();
+                    MarioBatchResult result;
+                    try {
+                        MarioGame game = new MarioGame();
+                        game.tickPermits = blocking ? null : permits;
+                        result = this.games.playGame(game, agent, level, timer, marioState);
+                    } catch (Throwable e) {
+                        //errors that playGame doesn't keep (like OutOfMemoryError or AssertionError) still count
+                        //as failed games so the results always have every game
+                        result = this.games.getFailedGame(agent, level, e, System.nanoTime() - startTime);
+                    }
+                    results.addResult(agent, result);
+                });
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Play every agent on every level and wait for all the games to finish
+     *
+     * @param timer      number of ticks for every level to be played
+     * @param marioState the initial state that mario appears in. 0 small mario, 1 large mario, and 2 fire mario.
+     * @return the statistics of every agent
+     */
+    public MarioTournamentResults run(int timer, int marioState) {
+        ExecutorService executor = this.createExecutor();
+        try {
+            MarioTournamentResults results = this.start(timer, marioState, executor);
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                if (MarioGame.verbose) {
+                    System.out.println("Tournament games finished: " + results.getTotalGames());
+                }
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tournament was interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
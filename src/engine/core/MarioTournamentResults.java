@@ -0,0 +1,157 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of every agent in a tournament. Games finishing on different threads add their result
+ * without any locking, so the totals can be read at any time while the tournament is still running.
+ */
+public class MarioTournamentResults {
+    private String[] agentNames;
+    private LongAdder[] games;
+    private LongAdder[] wins;
+    private LongAdder[] loses;
+    private LongAdder[] timeOuts;
+    private LongAdder[] failures;
+    private LongAdder[] ticks;
+    private DoubleAdder[] completion;
+    private ConcurrentLinkedQueue<MarioBatchResult> failedGames;
+
+    MarioTournamentResults(List<String> agentNames) {
+        int size = agentNames.size();
+        this.agentNames = agentNames.toArray(new String[size]);
+        this.games = createAdders(size);
+        this.wins = createAdders(size);
+        this.loses = createAdders(size);
+        this.timeOuts = createAdders(size);
+        this.failures = createAdders(size);
+        this.ticks = createAdders(size);
+        this.completion = new DoubleAdder[size];
+        for (int i = 0; i < size; i++) {
+            this.completion[i] = new DoubleAdder();
+        }
+        this.failedGames = new ConcurrentLinkedQueue<>();
+    }
+
+    private static LongAdder[] createAdders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    void addResult(int agent, MarioBatchResult game) {
+        MarioResultSummary result = game.getSummary();
+        if (result == null) {
+            this.failedGames.add(game);
+            this.failures[agent].increment();
+            this.games[agent].increment();
+            return;
+        }
+        switch (result.getGameStatus()) {
+            case WIN:
+                this.wins[agent].increment();
+                break;
+            case LOSE:
+                this.loses[agent].increment();
+                break;
+            case TIME_OUT:
+                this.timeOuts[agent].increment();
+                break;
+            default:
+                break;
+        }
+        this.ticks[agent].add(result.getNumberOfTicks());
+        this.completion[agent].add(result.getCompletionPercentage());
+        this.games[agent].increment();
+    }
+
+    public int getNumberOfAgents() {
+        return this.agentNames.length;
+    }
+
+    public String getAgentName(int agent) {
+        return this.agentNames[agent];
+    }
+
+    public long getGames(int agent) {
+        return this.games[agent].sum();
+    }
+
+    public long getWins(int agent) {
+        return this.wins[agent].sum();
+    }
+
+    public long getLoses(int agent) {
+        return this.loses[agent].sum();
+    }
+
+    public long getTimeOuts(int agent) {
+        return this.timeOuts[agent].sum();
+    }
+
+    /**
+     * number of games where the agent or the game threw an exception
+     */
+    public long getFailures(int agent) {
+        return this.failures[agent].sum();
+    }
+
+    /**
+     * Get the games that threw an exception
+     *
+     * @return the agent, level and error of every failed game so far
+     */
+    public ArrayList<MarioBatchResult> getFailedGames() {
+        return new ArrayList<>(this.failedGames);
+    }
+
+    public long getTicks(int agent) {
+        return this.ticks[agent].sum();
+    }
+
+    public float getAverageCompletion(int agent) {
+        long games = this.getGames(agent) - this.getFailures(agent);
+        if (games <= 0) {
+            return 0;
+        }
+        return (float) (this.completion[agent].sum() / games);
+    }
+
+    public long getTotalGames() {
+        long total = 0;
+        for (LongAdder adder : this.games) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    public long getTotalTicks() {
+        long total = 0;
+        for (LongAdder adder : this.ticks) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append("****************************************************************\n");
+        for (int i = 0; i < this.agentNames.length; i++) {
+            report.append(String.format("%s: Games: %d Wins: %d Loses: %d Time Outs: %d Failed: %d Avg Completion: %.3f%n",
+                    this.agentNames[i], this.getGames(i), this.getWins(i), this.getLoses(i), this.getTimeOuts(i),
+                    this.getFailures(i), this.getAverageCompletion(i)));
+        }
+        for (MarioBatchResult game : this.failedGames) {
+            report.append(String.format("Failed: %s on %s: %s%n", game.getAgentName(), game.getLevelName(), game.getError()));
+        }
+        report.append("****************************************************************");
+        return report.toString();
+    }
+}
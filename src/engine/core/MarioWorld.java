@@ -3,6 +3,7 @@ package engine.core;
 import java.awt.Graphics;
 import java.awt.GraphicsConfiguration;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import engine.effects.*;
 import engine.graphics.MarioBackground;
@@ -26,13 +27,24 @@ public class MarioWorld {
     //Status
     public int coins, lives;
     public ArrayList<MarioEvent> lastFrameEvents;
+    //create event objects in lastFrameEvents, clones used by forward models only keep the primitive event data
+    public boolean recordEvents;
+    //type, parameter and mario state of the events of the last frame, filled even if recordEvents is false
+    int[] frameEventTypes, frameEventParams, frameEventStates;
+    int frameEventCount;
 
     private MarioEvent[] killEvents;
-    private ArrayList<MarioSprite> sprites;
+    //undo journal, it is only created when marks are used
+    MarioJournal journal;
+    int journalEpoch;
+    private int worldJournalEpoch;
+    //scratch journal used to collect the sprite values for the state hash
+    private MarioJournal hashJournal;
+    private MarioSpriteStore sprites;
     private ArrayList<Shell> shellsToCheck;
     private ArrayList<Fireball> fireballsToCheck;
-    private ArrayList<MarioSprite> addedSprites;
-    private ArrayList<MarioSprite> removedSprites;
+    //number of sprites in the world for each sprite template code
+    private int[] spawnedSprites;
 
     private ArrayList<MarioEffect> effects;
 
@@ -41,13 +53,16 @@ public class MarioWorld {
     public MarioWorld(MarioEvent[] killEvents) {
         this.pauseTimer = 0;
         this.gameStatus = GameStatus.RUNNING;
-        this.sprites = new ArrayList<>();
+        this.sprites = new MarioSpriteStore();
         this.shellsToCheck = new ArrayList<>();
         this.fireballsToCheck = new ArrayList<>();
-        this.addedSprites = new ArrayList<>();
-        this.removedSprites = new ArrayList<>();
         this.effects = new ArrayList<>();
         this.lastFrameEvents = new ArrayList<>();
+        this.recordEvents = true;
+        this.frameEventTypes = new int[16];
+        this.frameEventParams = new int[16];
+        this.frameEventStates = new int[16];
+        this.frameEventCount = 0;
         this.killEvents = killEvents;
     }
 
@@ -88,6 +103,7 @@ public class MarioWorld {
     public void initializeLevel(String level, int timer) {
         this.currentTimer = timer;
         this.level = new MarioLevel(level, this.visuals);
+        this.spawnedSprites = new int[this.level.getNumberOfSpriteTemplates()];
 
         this.mario = new Mario(this.visuals, this.level.marioTileX * 16, this.level.marioTileY * 16);
         this.mario.alive = true;
@@ -95,11 +111,15 @@ public class MarioWorld {
         this.sprites.add(this.mario);
     }
 
+    MarioSpriteStore getSprites() {
+        return this.sprites;
+    }
+
     public ArrayList<MarioSprite> getEnemies() {
-        ArrayList<MarioSprite> enemies = new ArrayList<>();
-        for (MarioSprite sprite : sprites) {
-            if (this.isEnemy(sprite)) {
-                enemies.add(sprite);
+        ArrayList<MarioSprite> enemies = new ArrayList<>(this.sprites.getNumberOfEnemies());
+        for (int i = 0; i < this.sprites.size(); i++) {
+            if ((this.sprites.getFlags(i) & MarioSpriteStore.ENEMY) != 0) {
+                enemies.add(this.sprites.get(i));
             }
         }
         return enemies;
@@ -108,6 +128,7 @@ public class MarioWorld {
     public MarioWorld clone() {
         MarioWorld world = new MarioWorld(this.killEvents);
         world.visuals = false;
+        world.recordEvents = false;
         world.cameraX = this.cameraX;
         world.cameraY = this.cameraY;
         world.fireballsOnScreen = this.fireballsOnScreen;
@@ -116,12 +137,17 @@ public class MarioWorld {
         world.currentTimer = this.currentTimer;
         world.currentTick = this.currentTick;
         world.level = this.level.clone();
-        for (MarioSprite sprite : this.sprites) {
-            MarioSprite cloneSprite = sprite.clone();
+        world.spawnedSprites = new int[this.spawnedSprites.length];
+        world.sprites.ensureCapacity(this.sprites.size());
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite cloneSprite = this.sprites.get(i).clone();
             cloneSprite.world = world;
             if (cloneSprite.type == SpriteType.MARIO) {
                 world.mario = (Mario) cloneSprite;
             }
+            if (cloneSprite.initialCode >= 0) {
+                world.spawnedSprites[cloneSprite.initialCode] += 1;
+            }
             world.sprites.add(cloneSprite);
         }
         if (world.mario == null) {
@@ -133,6 +159,141 @@ public class MarioWorld {
         return world;
     }
 
+    /**
+     * Start recording changes (if not already) and mark the current state
+     *
+     * @return a mark that can be used to rewind to the current state
+     */
+    public int mark() {
+        if (this.journal == null) {
+            this.journal = new MarioJournal();
+            this.level.journal = this.journal;
+        }
+        this.journalEpoch += 1;
+        return this.journal.mark();
+    }
+
+    /**
+     * Restore the world to the state it was in when the mark was made. Marks made after it are no longer valid.
+     *
+     * @param mark a value returned by mark
+     */
+    public void rewind(int mark) {
+        if (this.journal == null) {
+            throw new IllegalStateException("There are no marks to rewind to.");
+        }
+        this.journal.rewind(mark);
+        this.journalEpoch += 1;
+    }
+
+    /**
+     * Stop recording changes and forget all the marks
+     */
+    public void clearMarks() {
+        this.journal = null;
+        this.level.journal = null;
+    }
+
+    private void saveSprite(MarioSprite sprite) {
+        if (sprite.journalEpoch != this.journalEpoch) {
+            sprite.saveState(this.journal);
+            this.journal.pushObject(sprite);
+            sprite.journalEpoch = this.journalEpoch;
+        }
+    }
+
+    private void saveState() {
+        if (this.worldJournalEpoch != this.journalEpoch) {
+            this.journal.pushObject(this.gameStatus);
+            this.journal.pushInt(this.pauseTimer);
+            this.journal.pushInt(this.fireballsOnScreen);
+            this.journal.pushInt(this.currentTimer);
+            this.journal.pushInt(this.currentTick);
+            this.journal.pushInt(this.coins);
+            this.journal.pushInt(this.lives);
+            this.journal.pushFloat(this.cameraX);
+            this.journal.pushFloat(this.cameraY);
+            this.journal.pushObject(this.sprites.toArray());
+            for (int i = 0; i < this.frameEventCount; i++) {
+                this.journal.pushInt(this.frameEventTypes[i]);
+                this.journal.pushInt(this.frameEventParams[i]);
+                this.journal.pushInt(this.frameEventStates[i]);
+            }
+            this.journal.pushInt(this.frameEventCount);
+            this.journal.pushObject(this.recordEvents ? this.lastFrameEvents.toArray(new MarioEvent[0]) : null);
+            this.journal.pushObject(this.spawnedSprites.clone());
+            this.journal.pushObject(this);
+            this.worldJournalEpoch = this.journalEpoch;
+        }
+        this.saveSprite(this.mario);
+        for (int i = 0; i < this.sprites.size(); i++) {
+            this.saveSprite(this.sprites.get(i));
+        }
+    }
+
+    void restoreState(MarioJournal journal) {
+        this.spawnedSprites = (int[]) journal.popObject();
+        this.lastFrameEvents.clear();
+        MarioEvent[] events = (MarioEvent[]) journal.popObject();
+        if (events != null) {
+            for (MarioEvent event : events) {
+                this.lastFrameEvents.add(event);
+            }
+        }
+        this.frameEventCount = journal.popInt();
+        for (int i = this.frameEventCount - 1; i >= 0; i--) {
+            this.frameEventStates[i] = journal.popInt();
+            this.frameEventParams[i] = journal.popInt();
+            this.frameEventTypes[i] = journal.popInt();
+        }
+        this.sprites.setAll((MarioSprite[]) journal.popObject());
+        this.cameraY = journal.popFloat();
+        this.cameraX = journal.popFloat();
+        this.lives = journal.popInt();
+        this.coins = journal.popInt();
+        this.currentTick = journal.popInt();
+        this.currentTimer = journal.popInt();
+        this.fireballsOnScreen = journal.popInt();
+        this.pauseTimer = journal.popInt();
+        this.gameStatus = (GameStatus) journal.popObject();
+    }
+
+    static long mixHash(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Get a 64 bit hash of the current simulation state (world status and timers, every sprite in update order,
+     * the changed tiles and the spawn ticks of the sprite templates). The level part is updated incrementally
+     * when a tile or a spawn tick changes. The sprites change on every tick through their own fields, so their
+     * part is computed on every call and the cost grows with the number of sprites. Hashes are only comparable
+     * between worlds that are playing the same level.
+     *
+     * @return a hash that is equal for worlds with the same simulation state
+     */
+    public long getStateHash() {
+        if (this.hashJournal == null) {
+            this.hashJournal = new MarioJournal(true);
+        }
+        long hash = this.level.getStateHash();
+        hash ^= mixHash(this.gameStatus.ordinal() + 31L * this.pauseTimer);
+        hash ^= mixHash(this.currentTimer + 0x9E3779B97F4A7C15L * this.currentTick);
+        hash ^= mixHash(this.coins + 0xC2B2AE3D27D4EB4FL * this.lives);
+        long spritesHash = 0;
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
+            this.hashJournal.clear();
+            this.hashJournal.pushInt(sprite.type.getValue());
+            sprite.saveState(this.hashJournal);
+            //the update order decides the results, the same sprites in another order are another state
+            spritesHash += mixHash(this.hashJournal.hashValues() + 0x9E3779B97F4A7C15L * (i + 1));
+        }
+        this.hashJournal.clear();
+        return mixHash(hash + spritesHash);
+    }
+
     public void addEvent(EventType eventType, int eventParam) {
         int marioState = 0;
         if (this.mario.isLarge) {
@@ -141,7 +302,18 @@ public class MarioWorld {
         if (this.mario.isFire) {
             marioState = 2;
         }
-        this.lastFrameEvents.add(new MarioEvent(eventType, eventParam, mario.x, mario.y, marioState, this.currentTick));
+        if (this.frameEventCount == this.frameEventTypes.length) {
+            this.frameEventTypes = Arrays.copyOf(this.frameEventTypes, this.frameEventCount * 2);
+            this.frameEventParams = Arrays.copyOf(this.frameEventParams, this.frameEventCount * 2);
+            this.frameEventStates = Arrays.copyOf(this.frameEventStates, this.frameEventCount * 2);
+        }
+        this.frameEventTypes[this.frameEventCount] = eventType.getValue();
+        this.frameEventParams[this.frameEventCount] = eventParam;
+        this.frameEventStates[this.frameEventCount] = marioState;
+        this.frameEventCount += 1;
+        if (this.recordEvents) {
+            this.lastFrameEvents.add(new MarioEvent(eventType, eventParam, mario.x, mario.y, marioState, this.currentTick));
+        }
     }
 
     public void addEffect(MarioEffect effect) {
@@ -149,7 +321,7 @@ public class MarioWorld {
     }
 
     public void addSprite(MarioSprite sprite) {
-        this.addedSprites.add(sprite);
+        this.sprites.queueAdd(sprite);
         sprite.alive = true;
         sprite.world = this;
         sprite.added();
@@ -157,7 +329,7 @@ public class MarioWorld {
     }
 
     public void removeSprite(MarioSprite sprite) {
-        this.removedSprites.add(sprite);
+        this.sprites.queueRemove(sprite);
         sprite.alive = false;
         sprite.removed();
         sprite.world = null;
@@ -191,24 +363,11 @@ public class MarioWorld {
         int[][] ret = new int[MarioGame.tileWidth][MarioGame.tileHeight];
         int centerXInMap = (int) centerX / 16;
         int centerYInMap = (int) centerY / 16;
+        int[] blocks = MarioForwardModel.getBlockTable(detail);
 
         for (int y = centerYInMap - MarioGame.tileHeight / 2, obsY = 0; y < centerYInMap + MarioGame.tileHeight / 2; y++, obsY++) {
             for (int x = centerXInMap - MarioGame.tileWidth / 2, obsX = 0; x < centerXInMap + MarioGame.tileWidth / 2; x++, obsX++) {
-                int currentX = x;
-                if (currentX < 0) {
-                    currentX = 0;
-                }
-                if (currentX > level.tileWidth - 1) {
-                    currentX = level.tileWidth - 1;
-                }
-                int currentY = y;
-                if (currentY < 0) {
-                    currentY = 0;
-                }
-                if (currentY > level.tileHeight - 1) {
-                    currentY = level.tileHeight - 1;
-                }
-                ret[obsX][obsY] = MarioForwardModel.getBlockValueGeneralization(this.level.getBlock(currentX, currentY), detail);
+                ret[obsX][obsY] = blocks[this.level.getNearestBlock(x, y)];
             }
         }
         return ret;
@@ -218,6 +377,7 @@ public class MarioWorld {
         int[][] ret = new int[MarioGame.tileWidth][MarioGame.tileHeight];
         int centerXInMap = (int) centerX / 16;
         int centerYInMap = (int) centerY / 16;
+        int[] spriteValues = MarioForwardModel.getSpriteTable(detail);
 
         for (int w = 0; w < ret.length; w++)
             for (int h = 0; h < ret[0].length; h++)
@@ -234,7 +394,7 @@ public class MarioWorld {
                     sprite.getMapY() < centerYInMap + MarioGame.tileHeight / 2) {
                 int obsX = sprite.getMapX() - centerXInMap + MarioGame.tileWidth / 2;
                 int obsY = sprite.getMapY() - centerYInMap + MarioGame.tileHeight / 2;
-                ret[obsX][obsY] = MarioForwardModel.getSpriteTypeGeneralization(sprite.type, detail);
+                ret[obsX][obsY] = spriteValues[sprite.type.ordinal()];
             }
         }
         return ret;
@@ -244,24 +404,12 @@ public class MarioWorld {
         int[][] ret = new int[MarioGame.tileWidth][MarioGame.tileHeight];
         int centerXInMap = (int) centerX / 16;
         int centerYInMap = (int) centerY / 16;
+        int[] blocks = MarioForwardModel.getBlockTable(sceneDetail);
+        int[] spriteValues = MarioForwardModel.getSpriteTable(enemiesDetail);
 
         for (int y = centerYInMap - MarioGame.tileHeight / 2, obsY = 0; y < centerYInMap + MarioGame.tileHeight / 2; y++, obsY++) {
             for (int x = centerXInMap - MarioGame.tileWidth / 2, obsX = 0; x < centerXInMap + MarioGame.tileWidth / 2; x++, obsX++) {
-                int currentX = x;
-                if (currentX < 0) {
-                    currentX = 0;
-                }
-                if (currentX > level.tileWidth - 1) {
-                    currentX = level.tileWidth - 1;
-                }
-                int currentY = y;
-                if (currentY < 0) {
-                    currentY = 0;
-                }
-                if (currentY > level.tileHeight - 1) {
-                    currentY = level.tileHeight - 1;
-                }
-                ret[obsX][obsY] = MarioForwardModel.getBlockValueGeneralization(this.level.getBlock(x, y), sceneDetail);
+                ret[obsX][obsY] = blocks[this.level.getBlock(x, y)];
             }
         }
 
@@ -276,7 +424,7 @@ public class MarioWorld {
                     sprite.getMapY() < centerYInMap + MarioGame.tileHeight / 2) {
                 int obsX = sprite.getMapX() - centerXInMap + MarioGame.tileWidth / 2;
                 int obsY = sprite.getMapY() - centerYInMap + MarioGame.tileHeight / 2;
-                int tmp = MarioForwardModel.getSpriteTypeGeneralization(sprite.type, enemiesDetail);
+                int tmp = spriteValues[sprite.type.ordinal()];
                 if (tmp != SpriteType.NONE.getValue()) {
                     ret[obsX][obsY] = tmp;
                 }
@@ -286,6 +434,130 @@ public class MarioWorld {
         return ret;
     }
 
+    private void checkObservationBuffer(int[] buffer, int offset, int layers) {
+        if (offset < 0 || offset + layers * MarioGame.tileWidth * MarioGame.tileHeight > buffer.length) {
+            throw new IllegalArgumentException("The observation buffer is too small for " + layers + " layers.");
+        }
+    }
+
+    private void checkObservationDetails(int[] details) {
+        for (int detail : details) {
+            MarioForwardModel.checkDetail(detail);
+        }
+    }
+
+    /**
+     * Fill a flat buffer with the scene observation for multiple detail levels in one pass. Each detail level is a layer
+     * of tileWidth * tileHeight values where tile (x, y) is stored at y * tileWidth + x, layers follow the details order.
+     *
+     * @param centerX the x position in the level the observation is centered around
+     * @param centerY the y position in the level the observation is centered around
+     * @param details the detail level of each layer (0, 1 or 2), other values throw an IllegalArgumentException
+     * @param buffer  the buffer that is filled with the observation layers
+     * @param offset  the index of the first value of the first layer in the buffer
+     */
+    public void fillSceneObservation(float centerX, float centerY, int[] details, int[] buffer, int offset) {
+        this.checkObservationBuffer(buffer, offset, details.length);
+        this.checkObservationDetails(details);
+        int layerSize = MarioGame.tileWidth * MarioGame.tileHeight;
+        int centerXInMap = (int) centerX / 16;
+        int centerYInMap = (int) centerY / 16;
+
+        for (int y = centerYInMap - MarioGame.tileHeight / 2, obsY = 0; y < centerYInMap + MarioGame.tileHeight / 2; y++, obsY++) {
+            for (int x = centerXInMap - MarioGame.tileWidth / 2, obsX = 0; x < centerXInMap + MarioGame.tileWidth / 2; x++, obsX++) {
+                int block = this.level.getNearestBlock(x, y);
+                int index = offset + obsY * MarioGame.tileWidth + obsX;
+                for (int i = 0; i < details.length; i++) {
+                    buffer[index + i * layerSize] = MarioForwardModel.getBlockTable(details[i])[block];
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill a flat buffer with the enemies observation for multiple detail levels in one pass. Each detail level is a layer
+     * of tileWidth * tileHeight values where tile (x, y) is stored at y * tileWidth + x, layers follow the details order.
+     *
+     * @param centerX the x position in the level the observation is centered around
+     * @param centerY the y position in the level the observation is centered around
+     * @param details the detail level of each layer (0, 1 or 2), other values throw an IllegalArgumentException
+     * @param buffer  the buffer that is filled with the observation layers
+     * @param offset  the index of the first value of the first layer in the buffer
+     */
+    public void fillEnemiesObservation(float centerX, float centerY, int[] details, int[] buffer, int offset) {
+        this.checkObservationBuffer(buffer, offset, details.length);
+        this.checkObservationDetails(details);
+        int layerSize = MarioGame.tileWidth * MarioGame.tileHeight;
+        int centerXInMap = (int) centerX / 16;
+        int centerYInMap = (int) centerY / 16;
+        Arrays.fill(buffer, offset, offset + details.length * layerSize, 0);
+
+        for (int s = 0; s < this.sprites.size(); s++) {
+            MarioSprite sprite = this.sprites.get(s);
+            if (sprite.type == SpriteType.MARIO)
+                continue;
+            if (sprite.getMapX() >= 0 &&
+                    sprite.getMapX() > centerXInMap - MarioGame.tileWidth / 2 &&
+                    sprite.getMapX() < centerXInMap + MarioGame.tileWidth / 2 &&
+                    sprite.getMapY() >= 0 &&
+                    sprite.getMapY() > centerYInMap - MarioGame.tileHeight / 2 &&
+                    sprite.getMapY() < centerYInMap + MarioGame.tileHeight / 2) {
+                int obsX = sprite.getMapX() - centerXInMap + MarioGame.tileWidth / 2;
+                int obsY = sprite.getMapY() - centerYInMap + MarioGame.tileHeight / 2;
+                int index = offset + obsY * MarioGame.tileWidth + obsX;
+                for (int i = 0; i < details.length; i++) {
+                    buffer[index + i * layerSize] = MarioForwardModel.getSpriteTable(details[i])[sprite.type.ordinal()];
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill a flat buffer with the merged scene and enemies observation. Tile (x, y) is stored at y * tileWidth + x.
+     *
+     * @param centerX       the x position in the level the observation is centered around
+     * @param centerY       the y position in the level the observation is centered around
+     * @param sceneDetail   the detail level of the scene (0, 1 or 2)
+     * @param enemiesDetail the detail level of the enemies (0, 1 or 2)
+     * @param buffer        the buffer that is filled with the observation
+     * @param offset        the index of the first value in the buffer
+     */
+    public void fillMergedObservation(float centerX, float centerY, int sceneDetail, int enemiesDetail, int[] buffer, int offset) {
+        this.checkObservationBuffer(buffer, offset, 1);
+        MarioForwardModel.checkDetail(sceneDetail);
+        MarioForwardModel.checkDetail(enemiesDetail);
+        int centerXInMap = (int) centerX / 16;
+        int centerYInMap = (int) centerY / 16;
+        int[] blocks = MarioForwardModel.getBlockTable(sceneDetail);
+        int[] spriteValues = MarioForwardModel.getSpriteTable(enemiesDetail);
+
+        for (int y = centerYInMap - MarioGame.tileHeight / 2, obsY = 0; y < centerYInMap + MarioGame.tileHeight / 2; y++, obsY++) {
+            for (int x = centerXInMap - MarioGame.tileWidth / 2, obsX = 0; x < centerXInMap + MarioGame.tileWidth / 2; x++, obsX++) {
+                buffer[offset + obsY * MarioGame.tileWidth + obsX] =
+                        blocks[this.level.getBlock(x, y)];
+            }
+        }
+
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
+            if (sprite.type == SpriteType.MARIO)
+                continue;
+            if (sprite.getMapX() >= 0 &&
+                    sprite.getMapX() > centerXInMap - MarioGame.tileWidth / 2 &&
+                    sprite.getMapX() < centerXInMap + MarioGame.tileWidth / 2 &&
+                    sprite.getMapY() >= 0 &&
+                    sprite.getMapY() > centerYInMap - MarioGame.tileHeight / 2 &&
+                    sprite.getMapY() < centerYInMap + MarioGame.tileHeight / 2) {
+                int obsX = sprite.getMapX() - centerXInMap + MarioGame.tileWidth / 2;
+                int obsY = sprite.getMapY() - centerYInMap + MarioGame.tileHeight / 2;
+                int tmp = spriteValues[sprite.type.ordinal()];
+                if (tmp != SpriteType.NONE.getValue()) {
+                    buffer[offset + obsY * MarioGame.tileWidth + obsX] = tmp;
+                }
+            }
+        }
+    }
+
     private boolean isEnemy(MarioSprite sprite) {
         return sprite instanceof Enemy || sprite instanceof FlowerEnemy || sprite instanceof BulletBill;
     }
@@ -294,6 +566,9 @@ public class MarioWorld {
         if (this.gameStatus != GameStatus.RUNNING) {
             return;
         }
+        if (this.journal != null) {
+            this.saveState();
+        }
         if (this.pauseTimer > 0) {
             this.pauseTimer -= 1;
             if (this.visuals) {
@@ -327,9 +602,11 @@ public class MarioWorld {
         }
 
         this.lastFrameEvents.clear();
+        this.frameEventCount = 0;
 
         this.fireballsOnScreen = 0;
-        for (MarioSprite sprite : sprites) {
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
             if (sprite.x < cameraX - 64 || sprite.x > cameraX + MarioGame.width + 64 || sprite.y > this.level.height + 32) {
                 if (sprite.type == SpriteType.MARIO) {
                     this.lose();
@@ -354,19 +631,11 @@ public class MarioWorld {
                 if (x * 16 + 8 < mario.x - 16)
                     dir = 1;
 
-                SpriteType type = level.getSpriteType(x, y);
-                if (type != SpriteType.NONE) {
-                    String spriteCode = level.getSpriteCode(x, y);
-                    boolean found = false;
-                    for (MarioSprite sprite : sprites) {
-                        if (sprite.initialCode.equals(spriteCode)) {
-                            found = true;
-                            break;
-                        }
-                    }
-                    if (!found) {
-                        if (this.level.getLastSpawnTick(x, y) != this.currentTick - 1) {
-                            MarioSprite sprite = type.spawnSprite(this.visuals, x, y, dir);
+                int spriteCode = level.getSpriteCode(x, y);
+                if (spriteCode >= 0) {
+                    if (this.spawnedSprites[spriteCode] == 0) {
+                        if (this.level.getLastSpawnTick(spriteCode) != this.currentTick - 1) {
+                            MarioSprite sprite = level.getSpriteTemplate(spriteCode).spawnSprite(this.visuals, x, y, dir);
                             sprite.initialCode = spriteCode;
                             this.addSprite(sprite);
                         }
@@ -375,8 +644,7 @@ public class MarioWorld {
                 }
 
                 if (dir != 0) {
-                    ArrayList<TileFeature> features = TileFeature.getTileType(this.level.getBlock(x, y));
-                    if (features.contains(TileFeature.SPAWNER)) {
+                    if (TileFeature.hasFeature(this.level.getBlock(x, y), TileFeature.SPAWNER)) {
                         if (this.currentTick % 100 == 0) {
                             addSprite(new BulletBill(this.visuals, x * 16 + 8 + dir * 8, y * 16 + 15, dir));
                         }
@@ -386,21 +654,32 @@ public class MarioWorld {
         }
 
         this.mario.actions = actions;
-        for (MarioSprite sprite : sprites) {
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
             if (!sprite.alive) {
                 continue;
             }
             sprite.update();
         }
-        for (MarioSprite sprite : sprites) {
-            if (!sprite.alive) {
-                continue;
+        this.sprites.clearTargets();
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
+            if (sprite.alive) {
+                sprite.collideCheck();
             }
-            sprite.collideCheck();
+            this.sprites.addTarget(i);
         }
 
+        //only the sprites flagged as projectile targets override shellCollideCheck and fireballCollideCheck, and
+        //they all miss projectiles that are 16 or more pixels away on x. Nothing moves during these checks so the
+        //x positions of the targets are still current
         for (Shell shell : shellsToCheck) {
-            for (MarioSprite sprite : sprites) {
+            for (int t = 0; t < this.sprites.getNumberOfTargets(); t++) {
+                float xD = shell.x - this.sprites.getTargetX(t);
+                if (xD <= -16 || xD >= 16) {
+                    continue;
+                }
+                MarioSprite sprite = this.sprites.get(this.sprites.getTarget(t));
                 if (sprite != shell && shell.alive && sprite.alive) {
                     if (sprite.shellCollideCheck(shell)) {
                         this.removeSprite(sprite);
@@ -411,7 +690,12 @@ public class MarioWorld {
         shellsToCheck.clear();
 
         for (Fireball fireball : fireballsToCheck) {
-            for (MarioSprite sprite : sprites) {
+            for (int t = 0; t < this.sprites.getNumberOfTargets(); t++) {
+                float xD = fireball.x - this.sprites.getTargetX(t);
+                if (xD <= -16 || xD >= 16) {
+                    continue;
+                }
+                MarioSprite sprite = this.sprites.get(this.sprites.getTarget(t));
                 if (sprite != fireball && fireball.alive && sprite.alive) {
                     if (sprite.fireballCollideCheck(fireball)) {
                         if (this.visuals) {
@@ -424,38 +708,51 @@ public class MarioWorld {
         }
         fireballsToCheck.clear();
 
-        sprites.addAll(0, addedSprites);
-        sprites.removeAll(removedSprites);
-        addedSprites.clear();
-        removedSprites.clear();
+        if (this.sprites.commit()) {
+            this.countSpawnedSprites();
+        }
 
         //punishing forward model
         if (this.killEvents != null) {
             for (MarioEvent k : this.killEvents) {
-                if (this.lastFrameEvents.contains(k)) {
-                    this.lose();
+                for (int i = 0; i < this.frameEventCount; i++) {
+                    if (k.getEventType() == this.frameEventTypes[i] &&
+                            (k.getEventParam() == 0 || k.getEventParam() == this.frameEventParams[i])) {
+                        this.lose();
+                        break;
+                    }
                 }
             }
         }
     }
 
+    private void countSpawnedSprites() {
+        Arrays.fill(this.spawnedSprites, 0);
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
+            if (sprite.initialCode >= 0) {
+                this.spawnedSprites[sprite.initialCode] += 1;
+            }
+        }
+    }
+
     public void bump(int xTile, int yTile, boolean canBreakBricks) {
         int block = this.level.getBlock(xTile, yTile);
-        ArrayList<TileFeature> features = TileFeature.getTileType(block);
+        int features = TileFeature.getTileFeatures(block);
 
-        if (features.contains(TileFeature.BUMPABLE)) {
+        if ((features & TileFeature.BUMPABLE.getMask()) != 0) {
             bumpInto(xTile, yTile - 1);
             this.addEvent(EventType.BUMP, MarioForwardModel.OBS_QUESTION_BLOCK);
             level.setBlock(xTile, yTile, 14);
             level.setShiftIndex(xTile, yTile, 4);
 
-            if (features.contains(TileFeature.SPECIAL)) {
+            if ((features & TileFeature.SPECIAL.getMask()) != 0) {
                 if (!this.mario.isLarge) {
                     addSprite(new Mushroom(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
                 } else {
                     addSprite(new FireFlower(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
                 }
-            } else if (features.contains(TileFeature.LIFE)) {
+            } else if ((features & TileFeature.LIFE.getMask()) != 0) {
                 addSprite(new LifeMushroom(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
             } else {
                 mario.collectCoin();
@@ -465,7 +762,7 @@ public class MarioWorld {
             }
         }
 
-        if (features.contains(TileFeature.BREAKABLE)) {
+        if ((features & TileFeature.BREAKABLE.getMask()) != 0) {
             bumpInto(xTile, yTile - 1);
             if (canBreakBricks) {
                 this.addEvent(EventType.BUMP, MarioForwardModel.OBS_BRICK);
@@ -486,7 +783,7 @@ public class MarioWorld {
 
     public void bumpInto(int xTile, int yTile) {
         int block = level.getBlock(xTile, yTile);
-        if (TileFeature.getTileType(block).contains(TileFeature.PICKABLE)) {
+        if (TileFeature.hasFeature(block, TileFeature.PICKABLE)) {
             this.addEvent(EventType.COLLECT, block);
             this.mario.collectCoin();
             level.setBlock(xTile, yTile, 0);
@@ -495,8 +792,10 @@ public class MarioWorld {
             }
         }
 
-        for (MarioSprite sprite : sprites) {
-            sprite.bumpCheck(xTile, yTile);
+        for (int i = 0; i < this.sprites.size(); i++) {
+            if ((this.sprites.getFlags(i) & MarioSpriteStore.BUMP_TARGET) != 0) {
+                this.sprites.get(i).bumpCheck(xTile, yTile);
+            }
         }
     }
 
@@ -1,61 +1,177 @@
 package engine.graphics;
 
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Image;
-import java.util.ArrayList;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 import engine.core.MarioGame;
 import engine.helper.TileFeature;
 
 public class MarioTilemap extends MarioGraphics {
+    //size of the cached chunks in tiles
+    private static final int CHUNK_SIZE = 16;
+
     public Image[][] sheet;
     public int[][] currentIndeces;
     public int[][] indexShift;
     public float[][] moveShift;
     public int animationIndex;
 
+    //static tiles are drawn once into chunk images, animated and moving tiles are drawn on top every frame
+    private BufferedImage[][] chunks;
+    private boolean[][] dirtyChunks;
+    private int[][][] animatedTiles;
+    private int[] movingTiles;
+    private int numMovingTiles;
+
     public MarioTilemap(Image[][] sheet, int[][] currentIndeces) {
         this.sheet = sheet;
         this.currentIndeces = currentIndeces;
         this.indexShift = new int[currentIndeces.length][currentIndeces[0].length];
         this.moveShift = new float[currentIndeces.length][currentIndeces[0].length];
         this.animationIndex = 0;
+
+        int chunksX = (currentIndeces.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int chunksY = (currentIndeces[0].length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.chunks = new BufferedImage[chunksX][chunksY];
+        this.dirtyChunks = new boolean[chunksX][chunksY];
+        this.animatedTiles = new int[chunksX][chunksY][];
+        for (boolean[] column : this.dirtyChunks) {
+            Arrays.fill(column, true);
+        }
+        this.movingTiles = new int[8];
+        this.numMovingTiles = 0;
+    }
+
+    /**
+     * Change the tile at a certain position
+     *
+     * @param xTile x tile position
+     * @param yTile y tile position
+     * @param index the new tile index
+     */
+    public void setTile(int xTile, int yTile, int index) {
+        if (this.currentIndeces[xTile][yTile] != index) {
+            this.currentIndeces[xTile][yTile] = index;
+            this.indexShift[xTile][yTile] = 0;
+            this.dirtyChunks[xTile / CHUNK_SIZE][yTile / CHUNK_SIZE] = true;
+        }
+    }
+
+    /**
+     * Move a tile up by a certain amount of pixels, the tile goes back to its place one pixel per frame
+     *
+     * @param xTile x tile position
+     * @param yTile y tile position
+     * @param shift number of pixels to move the tile
+     */
+    public void setMoveShift(int xTile, int yTile, float shift) {
+        if (this.moveShift[xTile][yTile] <= 0 && shift > 0) {
+            if (this.numMovingTiles == this.movingTiles.length) {
+                this.movingTiles = Arrays.copyOf(this.movingTiles, this.movingTiles.length * 2);
+            }
+            this.movingTiles[this.numMovingTiles++] = xTile * this.currentIndeces[0].length + yTile;
+            this.dirtyChunks[xTile / CHUNK_SIZE][yTile / CHUNK_SIZE] = true;
+        }
+        this.moveShift[xTile][yTile] = shift;
+    }
+
+    private boolean isStatic(int xTile, int yTile) {
+        return this.moveShift[xTile][yTile] <= 0 && !TileFeature.hasFeature(this.currentIndeces[xTile][yTile], TileFeature.ANIMATED);
+    }
+
+    private void updateChunk(int xChunk, int yChunk) {
+        int xStart = xChunk * CHUNK_SIZE;
+        int yStart = yChunk * CHUNK_SIZE;
+        int xEnd = Math.min(xStart + CHUNK_SIZE, this.currentIndeces.length);
+        int yEnd = Math.min(yStart + CHUNK_SIZE, this.currentIndeces[0].length);
+        //a new image every time, recorded frames on the render thread may still draw the old one
+        this.chunks[xChunk][yChunk] = new BufferedImage((xEnd - xStart) * 16, (yEnd - yStart) * 16, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = this.chunks[xChunk][yChunk].createGraphics();
+        int[] animated = new int[CHUNK_SIZE * CHUNK_SIZE];
+        int numAnimated = 0;
+        for (int xTile = xStart; xTile < xEnd; xTile++) {
+            for (int yTile = yStart; yTile < yEnd; yTile++) {
+                if (TileFeature.hasFeature(this.currentIndeces[xTile][yTile], TileFeature.ANIMATED)) {
+                    animated[numAnimated++] = xTile * this.currentIndeces[0].length + yTile;
+                }
+                if (this.isStatic(xTile, yTile)) {
+                    int index = this.currentIndeces[xTile][yTile];
+                    g.drawImage(this.sheet[index % 8][index / 8], (xTile - xStart) * 16, (yTile - yStart) * 16, null);
+                }
+            }
+        }
+        g.dispose();
+        this.animatedTiles[xChunk][yChunk] = Arrays.copyOf(animated, numAnimated);
+        this.dirtyChunks[xChunk][yChunk] = false;
+    }
+
+    private void drawTile(Graphics og, int xTile, int yTile, int x, int y) {
+        int index = this.currentIndeces[xTile][yTile] + this.indexShift[xTile][yTile];
+        int move = (int) this.moveShift[xTile][yTile];
+        Image img = this.sheet[index % 8][index / 8];
+        og.drawImage(img, xTile * 16 - x, yTile * 16 - y - move, null);
     }
 
     @Override
     public void render(Graphics og, int x, int y) {
         this.animationIndex = (this.animationIndex + 1) % 5;
 
-        int xMin = (x / 16) - 1;
-        int yMin = (y / 16) - 1;
-        int xMax = (x + MarioGame.width) / 16 + 1;
-        int yMax = (y + MarioGame.height) / 16 + 1;
+        int height = this.currentIndeces[0].length;
+        int xMin = Math.max(0, (x / 16) - 1);
+        int yMin = Math.max(0, (y / 16) - 1);
+        int xMax = Math.min(this.currentIndeces.length - 1, (x + MarioGame.width) / 16 + 1);
+        int yMax = Math.min(height - 1, (y + MarioGame.height) / 16 + 1);
+        if (xMin > xMax || yMin > yMax) {
+            return;
+        }
+
+        //visible moving tiles go back one pixel, and go back to their chunk when they stop
+        for (int i = 0; i < this.numMovingTiles; i++) {
+            int xTile = this.movingTiles[i] / height;
+            int yTile = this.movingTiles[i] % height;
+            if (xTile < xMin || xTile > xMax || yTile < yMin || yTile > yMax) {
+                continue;
+            }
+            this.moveShift[xTile][yTile] -= 1;
+            if (this.moveShift[xTile][yTile] <= 0) {
+                this.moveShift[xTile][yTile] = 0;
+                this.dirtyChunks[xTile / CHUNK_SIZE][yTile / CHUNK_SIZE] = true;
+                this.movingTiles[i--] = this.movingTiles[--this.numMovingTiles];
+            }
+        }
 
-        for (int xTile = xMin; xTile <= xMax; xTile++) {
-            for (int yTile = yMin; yTile <= yMax; yTile++) {
-                if (xTile < 0 || yTile < 0 || xTile >= currentIndeces.length || yTile >= currentIndeces[0].length) {
-                    continue;
+        for (int xChunk = xMin / CHUNK_SIZE; xChunk <= xMax / CHUNK_SIZE; xChunk++) {
+            for (int yChunk = yMin / CHUNK_SIZE; yChunk <= yMax / CHUNK_SIZE; yChunk++) {
+                if (this.dirtyChunks[xChunk][yChunk]) {
+                    this.updateChunk(xChunk, yChunk);
                 }
-                if (this.moveShift[xTile][yTile] > 0) {
-                    this.moveShift[xTile][yTile] -= 1;
-                    if (this.moveShift[xTile][yTile] < 0) {
-                        this.moveShift[xTile][yTile] = 0;
+                og.drawImage(this.chunks[xChunk][yChunk], xChunk * CHUNK_SIZE * 16 - x, yChunk * CHUNK_SIZE * 16 - y, null);
+            }
+        }
+
+        for (int xChunk = xMin / CHUNK_SIZE; xChunk <= xMax / CHUNK_SIZE; xChunk++) {
+            for (int yChunk = yMin / CHUNK_SIZE; yChunk <= yMax / CHUNK_SIZE; yChunk++) {
+                for (int tile : this.animatedTiles[xChunk][yChunk]) {
+                    int xTile = tile / height;
+                    int yTile = tile % height;
+                    if (xTile < xMin || xTile > xMax || yTile < yMin || yTile > yMax) {
+                        continue;
                     }
-                }
-                ArrayList<TileFeature> features = TileFeature.getTileType(this.currentIndeces[xTile][yTile]);
-                if (features.contains(TileFeature.ANIMATED)) {
                     if (this.animationIndex == 0) {
                         this.indexShift[xTile][yTile] = (this.indexShift[xTile][yTile] + 1) % 3;
                     }
-                } else {
-                    this.indexShift[xTile][yTile] = 0;
+                    if (this.moveShift[xTile][yTile] <= 0) {
+                        this.drawTile(og, xTile, yTile, x, y);
+                    }
                 }
-                int index = currentIndeces[xTile][yTile] + indexShift[xTile][yTile];
-                int move = (int) moveShift[xTile][yTile];
-                Image img = sheet[index % 8][index / 8];
-                og.drawImage(img, xTile * 16 - x, yTile * 16 - y - move, null);
             }
         }
+        for (int i = 0; i < this.numMovingTiles; i++) {
+            this.drawTile(og, this.movingTiles[i] / height, this.movingTiles[i] % height, x, y);
+        }
     }
 
 }
@@ -23,6 +23,10 @@ public enum MarioActions {
         return name;
     }
 
+    public int getMask() {
+        return 1 << value;
+    }
+
     public static int numberOfActions() {
         return MarioActions.values().length;
     }
@@ -30,4 +34,22 @@ public enum MarioActions {
     public static MarioActions getAction(int value) {
         return MarioActions.values()[value];
     }
+
+    public static int getMask(boolean[] actions) {
+        int mask = 0;
+        for (int i = 0; i < actions.length; i++) {
+            if (actions[i]) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    public static boolean[] getActions(int mask) {
+        boolean[] actions = new boolean[numberOfActions()];
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = (mask & (1 << i)) != 0;
+        }
+        return actions;
+    }
 }
@@ -14,6 +14,49 @@ public enum TileFeature {
     ANIMATED,
     SPAWNER;
 
+    private static final int[] tileFeatures = new int[256];
+
+    static {
+        for (int i = 0; i < tileFeatures.length; i++) {
+            for (TileFeature feature : getTileType(i)) {
+                tileFeatures[i] |= feature.getMask();
+            }
+        }
+    }
+
+    /**
+     * Get the bit that represents this feature in the tile feature masks
+     *
+     * @return a mask with only the bit of that feature set
+     */
+    public int getMask() {
+        return 1 << this.ordinal();
+    }
+
+    /**
+     * Get all the features of a certain tile as a bit mask without allocating any objects
+     *
+     * @param index the tile index
+     * @return a bit mask where each set bit is the mask of one of the tile features
+     */
+    public static int getTileFeatures(int index) {
+        if (index < 0 || index >= tileFeatures.length) {
+            return 0;
+        }
+        return tileFeatures[index];
+    }
+
+    /**
+     * Check if a certain tile has a certain feature
+     *
+     * @param index   the tile index
+     * @param feature the feature to check for
+     * @return true if the tile has that feature and false otherwise
+     */
+    public static boolean hasFeature(int index, TileFeature feature) {
+        return (getTileFeatures(index) & feature.getMask()) != 0;
+    }
+
     public static ArrayList<TileFeature> getTileType(int index) {
         ArrayList<TileFeature> features = new ArrayList<>();
         switch (index) {
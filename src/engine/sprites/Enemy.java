@@ -2,6 +2,7 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioJournal;
 import engine.core.MarioSprite;
 import engine.effects.DeathEffect;
 import engine.effects.SquishEffect;
@@ -53,6 +54,10 @@ public class Enemy extends MarioSprite {
         }
     }
 
+    public boolean isWinged() {
+        return this.winged;
+    }
+
     @Override
     public MarioSprite clone() {
         Enemy e = new Enemy(false, this.x, this.y, this.facing, this.type);
@@ -68,6 +73,28 @@ public class Enemy extends MarioSprite {
         return e;
     }
 
+    @Override
+    protected void saveState(MarioJournal journal) {
+        super.saveState(journal);
+        journal.pushBoolean(this.onGround);
+        journal.pushBoolean(this.avoidCliffs);
+        journal.pushBoolean(this.winged);
+        journal.pushBoolean(this.noFireballDeath);
+        journal.pushGraphicsFloat(this.runTime);
+        journal.pushGraphicsInt(this.wingTime);
+    }
+
+    @Override
+    protected void restoreState(MarioJournal journal) {
+        this.wingTime = journal.popInt();
+        this.runTime = journal.popFloat();
+        this.noFireballDeath = journal.popBoolean();
+        this.winged = journal.popBoolean();
+        this.avoidCliffs = journal.popBoolean();
+        this.onGround = journal.popBoolean();
+        super.restoreState(journal);
+    }
+
     public void collideCheck() {
         if (!this.alive) {
             return;
@@ -2,6 +2,7 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioJournal;
 import engine.core.MarioSprite;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
@@ -40,6 +41,18 @@ public class FireFlower extends MarioSprite {
         return f;
     }
 
+    @Override
+    protected void saveState(MarioJournal journal) {
+        super.saveState(journal);
+        journal.pushInt(this.life);
+    }
+
+    @Override
+    protected void restoreState(MarioJournal journal) {
+        this.life = journal.popInt();
+        super.restoreState(journal);
+    }
+
     @Override
     public void collideCheck() {
         if (!this.alive) {
@@ -2,6 +2,7 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioJournal;
 import engine.core.MarioSprite;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
@@ -44,6 +45,20 @@ public class Fireball extends MarioSprite {
         return f;
     }
 
+    @Override
+    protected void saveState(MarioJournal journal) {
+        super.saveState(journal);
+        journal.pushBoolean(this.onGround);
+        journal.pushGraphicsInt(this.anim);
+    }
+
+    @Override
+    protected void restoreState(MarioJournal journal) {
+        this.anim = journal.popInt();
+        this.onGround = journal.popBoolean();
+        super.restoreState(journal);
+    }
+
     private boolean move(float xa, float ya) {
         while (xa > 8) {
             if (!move(8, 0))
@@ -1,5 +1,6 @@
 package engine.sprites;
 
+import engine.core.MarioJournal;
 import engine.core.MarioSprite;
 import engine.helper.SpriteType;
 
@@ -42,6 +43,22 @@ public class FlowerEnemy extends Enemy {
         return sprite;
     }
 
+    @Override
+    protected void saveState(MarioJournal journal) {
+        super.saveState(journal);
+        journal.pushFloat(this.yStart);
+        journal.pushInt(this.tick);
+        journal.pushInt(this.waitTime);
+    }
+
+    @Override
+    protected void restoreState(MarioJournal journal) {
+        this.waitTime = journal.popInt();
+        this.tick = journal.popInt();
+        this.yStart = journal.popFloat();
+        super.restoreState(journal);
+    }
+
     @Override
     public void update() {
         if (!this.alive) {
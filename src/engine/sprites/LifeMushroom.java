@@ -2,6 +2,7 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioJournal;
 import engine.core.MarioSprite;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
@@ -46,6 +47,20 @@ public class LifeMushroom extends MarioSprite {
         return m;
     }
 
+    @Override
+    protected void saveState(MarioJournal journal) {
+        super.saveState(journal);
+        journal.pushBoolean(this.onGround);
+        journal.pushInt(this.life);
+    }
+
+    @Override
+    protected void restoreState(MarioJournal journal) {
+        this.life = journal.popInt();
+        this.onGround = journal.popBoolean();
+        super.restoreState(journal);
+    }
+
     public void collideCheck() {
         if (!this.alive) {
             return;
@@ -2,6 +2,7 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioJournal;
 import engine.core.MarioSprite;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
@@ -41,6 +42,10 @@ public class Mario extends MarioSprite {
         }
     }
 
+    public int getInvulnerableTime() {
+        return this.invulnerableTime;
+    }
+
     @Override
     public MarioSprite clone() {
         Mario sprite = new Mario(false, x - 8, y - 15);
@@ -69,6 +74,48 @@ public class Mario extends MarioSprite {
         return sprite;
     }
 
+    @Override
+    protected void saveState(MarioJournal journal) {
+        super.saveState(journal);
+        journal.pushBoolean(this.isLarge);
+        journal.pushBoolean(this.isFire);
+        journal.pushBoolean(this.onGround);
+        journal.pushBoolean(this.wasOnGround);
+        journal.pushBoolean(this.isDucking);
+        journal.pushBoolean(this.canShoot);
+        journal.pushBoolean(this.mayJump);
+        journal.pushGraphicsInt(this.oldLarge ? 1 : 0);
+        journal.pushGraphicsInt(this.oldFire ? 1 : 0);
+        journal.pushInt(this.jumpTime);
+        journal.pushInt(this.invulnerableTime);
+        journal.pushFloat(this.xJumpSpeed);
+        journal.pushFloat(this.yJumpSpeed);
+        journal.pushGraphicsFloat(this.marioFrameSpeed);
+        journal.pushFloat(this.xJumpStart);
+        journal.pushObject(this.actions);
+    }
+
+    @Override
+    protected void restoreState(MarioJournal journal) {
+        this.actions = (boolean[]) journal.popObject();
+        this.xJumpStart = journal.popFloat();
+        this.marioFrameSpeed = journal.popFloat();
+        this.yJumpSpeed = journal.popFloat();
+        this.xJumpSpeed = journal.popFloat();
+        this.invulnerableTime = journal.popInt();
+        this.jumpTime = journal.popInt();
+        this.oldFire = journal.popBoolean();
+        this.oldLarge = journal.popBoolean();
+        this.mayJump = journal.popBoolean();
+        this.canShoot = journal.popBoolean();
+        this.isDucking = journal.popBoolean();
+        this.wasOnGround = journal.popBoolean();
+        this.onGround = journal.popBoolean();
+        this.isFire = journal.popBoolean();
+        this.isLarge = journal.popBoolean();
+        super.restoreState(journal);
+    }
+
     private boolean move(float xa, float ya) {
         while (xa > 8) {
             if (!move(8, 0))
@@ -161,7 +208,7 @@ public class Mario extends MarioSprite {
         boolean blocking = world.level.isBlocking(xTile, yTile, xa, ya);
         int block = world.level.getBlock(xTile, yTile);
 
-        if (TileFeature.getTileType(block).contains(TileFeature.PICKABLE)) {
+        if (TileFeature.hasFeature(block, TileFeature.PICKABLE)) {
             this.world.addEvent(EventType.COLLECT, block);
             this.collectCoin();
             world.level.setBlock(xTile, yTile, 0);
@@ -2,6 +2,7 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioJournal;
 import engine.core.MarioSprite;
 import engine.effects.DeathEffect;
 import engine.graphics.MarioImage;
@@ -18,7 +19,7 @@ public class Shell extends MarioSprite {
 
     private MarioImage graphics;
 
-    public Shell(boolean visuals, float x, float y, int shellType, String spriteCode) {
+    public Shell(boolean visuals, float x, float y, int shellType, int spriteCode) {
         super(x, y, SpriteType.SHELL);
 
         this.width = 4;
@@ -36,6 +37,10 @@ public class Shell extends MarioSprite {
         }
     }
 
+    public int getShellType() {
+        return this.shellType;
+    }
+
     @Override
     public MarioSprite clone() {
         Shell sprite = new Shell(false, this.x, this.y, this.shellType, this.initialCode);
@@ -48,6 +53,20 @@ public class Shell extends MarioSprite {
         return sprite;
     }
 
+    @Override
+    protected void saveState(MarioJournal journal) {
+        super.saveState(journal);
+        journal.pushInt(this.shellType);
+        journal.pushBoolean(this.onGround);
+    }
+
+    @Override
+    protected void restoreState(MarioJournal journal) {
+        this.onGround = journal.popBoolean();
+        this.shellType = journal.popInt();
+        super.restoreState(journal);
+    }
+
     @Override
     public void update() {
         if (!this.alive) return;